@@ -0,0 +1,117 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Jm elasticsearch backend benchmark.
+ * <p>
+ * Compares a {@link JMElasticsearchClient} on the transport port of an in-process {@link JMEmbeddedElasticsearch}
+ * with one on {@link JMElasticsearchRestBackend} over its http port, from several threads so the rest connection pool
+ * is exercised. The pool size and reactor threads are parameters and only apply to the rest backend. Bulk throughput
+ * is per document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JMElasticsearchBackendBenchmark {
+
+    /**
+     * The constant BULK_ACTIONS.
+     */
+    public static final int BULK_ACTIONS = 100;
+    private static final String INDEX = "benchmark";
+    private static final int DOC_COUNT = 1000;
+
+    @Param({"transport", "rest"})
+    private String backendType;
+    @Param({"10"})
+    private int maxConnectionsPerRoute;
+    @Param({"2"})
+    private int ioThreadCount;
+
+    private JMEmbeddedElasticsearch jmEmbeddedElasticsearch;
+    private JMElasticsearchClient jmElasticsearchClient;
+    private Map<String, Object> source;
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Sets up.
+     */
+    @Setup
+    public void setUp() {
+        this.jmEmbeddedElasticsearch = JMEmbeddedElasticsearch.buildFastStart();
+        jmEmbeddedElasticsearch.start();
+        this.jmElasticsearchClient = "rest".equals(backendType) ? new JMElasticsearchClient(
+                JMElasticsearchRestBackend.build(jmEmbeddedElasticsearch.getHttpIpPortPair(), maxConnectionsPerRoute,
+                        maxConnectionsPerRoute, ioThreadCount)) :
+                new JMElasticsearchClient(jmEmbeddedElasticsearch.getTransportIpPortPair());
+        this.source = JMElasticsearchUtil.buildSourceByJsonMapper(
+                JMElasticsearchSerializationBenchmark.BenchmarkDocument.build(64, 4, 2));
+        jmElasticsearchClient.create(INDEX);
+        for (int i = 0; i < DOC_COUNT; i++)
+            jmElasticsearchClient.prepareIndex().setIndex(INDEX).setId(String.valueOf(i)).setSource(source).get();
+        jmElasticsearchClient.admin().indices().prepareRefresh(INDEX).get();
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws IOException the io exception
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        jmElasticsearchClient.close();
+        jmEmbeddedElasticsearch.close();
+    }
+
+    /**
+     * Bulk bulk response.
+     *
+     * @return the bulk response
+     */
+    @Benchmark
+    @OperationsPerInvocation(BULK_ACTIONS)
+    public BulkResponse bulk() {
+        BulkRequestBuilder bulkRequestBuilder = jmElasticsearchClient.prepareBulk();
+        for (int i = 0; i < BULK_ACTIONS; i++)
+            bulkRequestBuilder.add(jmElasticsearchClient.prepareIndex().setIndex(INDEX)
+                    .setId(String.valueOf(counter.getAndIncrement() % DOC_COUNT)).setSource(source));
+        return bulkRequestBuilder.get();
+    }
+
+    /**
+     * Get get response.
+     *
+     * @return the get response
+     */
+    @Benchmark
+    public GetResponse get() {
+        return jmElasticsearchClient.getDoc(INDEX, String.valueOf(counter.getAndIncrement() % DOC_COUNT));
+    }
+
+    /**
+     * Search search response.
+     *
+     * @return the search response
+     */
+    @Benchmark
+    public SearchResponse search() {
+        return jmElasticsearchClient.searchQuery(jmElasticsearchClient.getSearchRequestBuilder(
+                QueryBuilders.termQuery("tags.keyword", "tag-" + (counter.getAndIncrement() % 2)), INDEX).setSize(10));
+    }
+
+}
@@ -0,0 +1,199 @@
+package kr.jm.utils.elasticsearch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.delete.DeleteRequestBuilder;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The type Jm elasticsearch bulk benchmark.
+ * <p>
+ * Builds a bulk of {@code actions} documents through each entry point of {@link JMElasticsearchBulk} and through raw
+ * {@link BulkRequest} NDJSON bytes, without sending it. Each size is its own nested benchmark with
+ * {@link OperationsPerInvocation} set to the size, so the reported time and {@code gc.alloc.rate.norm} (with
+ * {@code -prof gc}) are per action rather than per bulk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public abstract class JMElasticsearchBulkBenchmark {
+
+    private static final String INDEX = "benchmark";
+    private static final ObjectMapper JsonMapper = new ObjectMapper();
+
+    private JMElasticsearchClient jmElasticsearchClient;
+    private JMElasticsearchBulk jmElasticsearchBulk;
+    private List<Map<String, Object>> sourceList;
+    private List<Object> objectList;
+    private List<String> idList;
+    private byte[] indexBulkBytes;
+    private byte[] deleteBulkBytes;
+
+    /**
+     * Gets actions.
+     *
+     * @return the actions
+     */
+    protected abstract int getActions();
+
+    /**
+     * Sets up.
+     *
+     * @throws IOException the io exception
+     */
+    @Setup
+    public void setUp() throws IOException {
+        // request builders only need a client instance, nothing is sent
+        this.jmElasticsearchClient = new JMElasticsearchClient("127.0.0.1:9399", false);
+        this.jmElasticsearchBulk = new JMElasticsearchBulk(jmElasticsearchClient);
+        int actions = getActions();
+        this.objectList = new ArrayList<>(actions);
+        this.sourceList = new ArrayList<>(actions);
+        this.idList = new ArrayList<>(actions);
+        ByteArrayOutputStream indexBulkOutputStream = new ByteArrayOutputStream();
+        ByteArrayOutputStream deleteBulkOutputStream = new ByteArrayOutputStream();
+        for (int i = 0; i < actions; i++) {
+            JMElasticsearchSerializationBenchmark.BenchmarkDocument document =
+                    JMElasticsearchSerializationBenchmark.BenchmarkDocument.build(64, 4, 2);
+            document.id = "id-" + i;
+            objectList.add(document);
+            sourceList.add(JMElasticsearchUtil.buildSourceByJsonMapper(document));
+            idList.add(document.id);
+            writeLine(indexBulkOutputStream, "{\"index\":{}}");
+            indexBulkOutputStream.write(JsonMapper.writeValueAsBytes(document));
+            indexBulkOutputStream.write('\n');
+            writeLine(deleteBulkOutputStream, "{\"delete\":{\"_id\":\"" + document.id + "\"}}");
+        }
+        this.indexBulkBytes = indexBulkOutputStream.toByteArray();
+        this.deleteBulkBytes = deleteBulkOutputStream.toByteArray();
+    }
+
+    private void writeLine(ByteArrayOutputStream outputStream, String line) {
+        outputStream.writeBytes(line.getBytes());
+        outputStream.write('\n');
+    }
+
+    /**
+     * Tear down.
+     */
+    @TearDown
+    public void tearDown() {
+        jmElasticsearchClient.close();
+    }
+
+    /**
+     * Index request builder list bulk request builder.
+     *
+     * @return the bulk request builder
+     */
+    @Benchmark
+    public BulkRequestBuilder indexRequestBuilderList() {
+        List<IndexRequestBuilder> indexRequestBuilderList = sourceList.stream()
+                .map(source -> jmElasticsearchClient.prepareIndex().setIndex(INDEX).setSource(source))
+                .collect(Collectors.toList());
+        return jmElasticsearchBulk.buildBulkIndexRequestBuilder(indexRequestBuilderList);
+    }
+
+    /**
+     * Send bulk data pipeline bulk request builder.
+     *
+     * @return the bulk request builder
+     */
+    @Benchmark
+    public BulkRequestBuilder sendBulkDataPipeline() {
+        return jmElasticsearchBulk.buildBulkIndexRequestBuilderWithSource(sourceList, INDEX);
+    }
+
+    /**
+     * Send bulk data with object mapper pipeline bulk request builder.
+     *
+     * @return the bulk request builder
+     */
+    @Benchmark
+    public BulkRequestBuilder sendBulkDataWithObjectMapperPipeline() {
+        return jmElasticsearchBulk.buildBulkIndexRequestBuilderWithObjectMapper(objectList, INDEX);
+    }
+
+    /**
+     * Raw index bulk request bytes bulk request.
+     *
+     * @return the bulk request
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public BulkRequest rawIndexBulkRequestBytes() throws IOException {
+        return new BulkRequest().add(indexBulkBytes, 0, indexBulkBytes.length, INDEX, XContentType.JSON);
+    }
+
+    /**
+     * Delete request builder list bulk request builder.
+     *
+     * @return the bulk request builder
+     */
+    @Benchmark
+    public BulkRequestBuilder deleteRequestBuilderList() {
+        List<DeleteRequestBuilder> deleteRequestBuilderList = idList.stream()
+                .map(id -> jmElasticsearchClient.prepareDelete().setIndex(INDEX).setId(id))
+                .collect(Collectors.toList());
+        return jmElasticsearchBulk.buildDeleteBulkRequestBuilder(deleteRequestBuilderList);
+    }
+
+    /**
+     * Raw delete bulk request bytes bulk request.
+     *
+     * @return the bulk request
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public BulkRequest rawDeleteBulkRequestBytes() throws IOException {
+        return new BulkRequest().add(deleteBulkBytes, 0, deleteBulkBytes.length, INDEX, XContentType.JSON);
+    }
+
+    /**
+     * The type Actions 1k.
+     */
+    @OperationsPerInvocation(1_000)
+    public static class Actions1k extends JMElasticsearchBulkBenchmark {
+        @Override
+        protected int getActions() {
+            return 1_000;
+        }
+    }
+
+    /**
+     * The type Actions 10k.
+     */
+    @OperationsPerInvocation(10_000)
+    public static class Actions10k extends JMElasticsearchBulkBenchmark {
+        @Override
+        protected int getActions() {
+            return 10_000;
+        }
+    }
+
+    /**
+     * The type Actions 100k.
+     */
+    @OperationsPerInvocation(100_000)
+    public static class Actions100k extends JMElasticsearchBulkBenchmark {
+        @Override
+        protected int getActions() {
+            return 100_000;
+        }
+    }
+
+}
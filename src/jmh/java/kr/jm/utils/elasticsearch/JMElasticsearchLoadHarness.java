@@ -0,0 +1,379 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.JMThread;
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMJson;
+import kr.jm.utils.helper.JMLog;
+import kr.jm.utils.helper.JMPath;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Jm elasticsearch load harness.
+ * <p>
+ * Boots a {@link JMEmbeddedElasticsearch} under a temporary home, drives ingest through {@link JMElasticsearchClient}
+ * while concurrent searches run, then runs a search only phase, and prints throughput, latency percentiles and GC
+ * deltas as JSON. The node runs in the same JVM, so GC numbers include it. Options are {@code key=value} arguments:
+ * <ul>
+ * <li>{@code ingestMode} : {@code bulkProcessor}, {@code bulkAsync} (default) or {@code index}</li>
+ * <li>{@code docs} : documents to ingest, default 100000</li>
+ * <li>{@code docSize} : {@code small} (default), {@code medium} or {@code large}</li>
+ * <li>{@code bulkSize} : actions per bulk, default 1000</li>
+ * <li>{@code ingestConcurrency} : in-flight ingest requests, default 4</li>
+ * <li>{@code searchThreads} : concurrent search threads, default 2</li>
+ * <li>{@code searchSeconds} : length of the search only phase, default 10</li>
+ * <li>{@code label} : free text copied to the report, e.g. the client version under test</li>
+ * <li>{@code output} : file to write the report to as well as stdout</li>
+ * </ul>
+ */
+@Slf4j
+public class JMElasticsearchLoadHarness {
+
+    private static final String INDEX = "load-harness";
+    private static final long BULK_PROCESSOR_MAX_SIZE_KB = 100 * 1024;
+
+    private final Map<String, String> config;
+    private final String ingestMode;
+    private final int docs;
+    private final String docSize;
+    private final int bulkSize;
+    private final int ingestConcurrency;
+    private final int searchThreads;
+    private final int searchSeconds;
+
+    private final Recorder ingestRecorder = new Recorder(3);
+    private final Recorder searchRecorder = new Recorder(3);
+    private final AtomicLong ingestedDocCount = new AtomicLong();
+    private final AtomicLong ingestErrorCount = new AtomicLong();
+    private final AtomicLong searchErrorCount = new AtomicLong();
+
+    /**
+     * Instantiates a new Jm elasticsearch load harness.
+     *
+     * @param config the config
+     */
+    public JMElasticsearchLoadHarness(Map<String, String> config) {
+        this.config = new TreeMap<>(config);
+        this.ingestMode = config.getOrDefault("ingestMode", "bulkAsync");
+        this.docs = Integer.parseInt(config.getOrDefault("docs", "100000"));
+        this.docSize = config.getOrDefault("docSize", "small");
+        this.bulkSize = Integer.parseInt(config.getOrDefault("bulkSize", "1000"));
+        this.ingestConcurrency = Integer.parseInt(config.getOrDefault("ingestConcurrency", "4"));
+        this.searchThreads = Integer.parseInt(config.getOrDefault("searchThreads", "2"));
+        this.searchSeconds = Integer.parseInt(config.getOrDefault("searchSeconds", "10"));
+    }
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the key=value options
+     * @throws IOException the io exception
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> config = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            if (keyValue.length != 2)
+                throw new IllegalArgumentException("expected key=value but was " + arg);
+            config.put(keyValue[0], keyValue[1]);
+        }
+        String report = JMJson.getInstance().toJsonString(new JMElasticsearchLoadHarness(config).run());
+        System.out.println(report);
+        if (config.containsKey("output"))
+            Files.writeString(Paths.get(config.get("output")), report);
+        System.exit(0);
+    }
+
+    /**
+     * Run map.
+     *
+     * @return the report
+     */
+    public Map<String, Object> run() {
+        Path homePath = buildTempHomePath();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config);
+        report.put("elasticsearchVersion", Version.CURRENT.toString());
+        report.put("javaVersion", System.getProperty("java.version"));
+        long nodeStartNanos = System.nanoTime();
+        JMEmbeddedElasticsearch jmEmbeddedElasticsearch = new JMEmbeddedElasticsearch(JMEmbeddedElasticsearch
+                .getNodeConfig("JMElasticsearchLoadHarness", "load-harness", "localhost", homePath.toString(), true)
+                .build());
+        jmEmbeddedElasticsearch.start();
+        report.put("nodeStartMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nodeStartNanos));
+        JMElasticsearchClient jmElasticsearchClient =
+                new JMElasticsearchClient(jmEmbeddedElasticsearch.getTransportIpPortPair());
+        ExecutorService searchExecutor = Executors.newFixedThreadPool(Math.max(1, searchThreads));
+        try {
+            jmElasticsearchClient.create(INDEX);
+            List<Map<String, Object>> sourceList = buildSourceList();
+            Map<String, long[]> gcSnapshot = snapshotGc();
+            AtomicBoolean searching = new AtomicBoolean(true);
+            for (int i = 0; i < searchThreads; i++)
+                searchExecutor.execute(() -> runSearchLoop(jmElasticsearchClient, searching));
+
+            long ingestStartNanos = System.nanoTime();
+            ingest(jmElasticsearchClient, sourceList);
+            long ingestNanos = System.nanoTime() - ingestStartNanos;
+            report.put("ingest", buildPhaseReport(ingestRecorder.getIntervalHistogram(), ingestNanos,
+                    ingestedDocCount.get(), ingestErrorCount.get()));
+            report.put("searchDuringIngest", buildPhaseReport(searchRecorder.getIntervalHistogram(), ingestNanos,
+                    null, searchErrorCount.getAndSet(0)));
+
+            jmElasticsearchClient.admin().indices().prepareRefresh(INDEX).get();
+            long searchStartNanos = System.nanoTime();
+            JMThread.sleep(TimeUnit.SECONDS.toMillis(searchSeconds));
+            searching.set(false);
+            searchExecutor.shutdown();
+            searchExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            report.put("search", buildPhaseReport(searchRecorder.getIntervalHistogram(),
+                    System.nanoTime() - searchStartNanos, null, searchErrorCount.get()));
+            report.put("indexedDocCount", jmElasticsearchClient.admin().indices().prepareStats(INDEX).setDocs(true)
+                    .get().getPrimaries().getDocs().getCount());
+            report.put("gc", buildGcReport(gcSnapshot));
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return JMException.handleExceptionAndThrowRuntimeEx(log, e, "run", config);
+        } finally {
+            searchExecutor.shutdownNow();
+            jmElasticsearchClient.close();
+            closeNode(jmEmbeddedElasticsearch);
+            JMPath.getInstance().deleteDirOnExist(homePath);
+        }
+    }
+
+    private void closeNode(JMEmbeddedElasticsearch jmEmbeddedElasticsearch) {
+        try {
+            jmEmbeddedElasticsearch.close();
+        } catch (IOException e) {
+            JMException.handleException(log, e, "closeNode");
+        }
+    }
+
+    private Path buildTempHomePath() {
+        try {
+            return Files.createTempDirectory("jm-es-load-harness");
+        } catch (IOException e) {
+            return JMException.handleExceptionAndThrowRuntimeEx(log, e, "buildTempHomePath");
+        }
+    }
+
+    private List<Map<String, Object>> buildSourceList() {
+        List<Map<String, Object>> sourceList = new ArrayList<>(docs);
+        for (int i = 0; i < docs; i++) {
+            JMElasticsearchSerializationBenchmark.BenchmarkDocument document = buildDocument();
+            document.id = "id-" + i;
+            document.timestamp += i;
+            sourceList.add(JMElasticsearchUtil.buildSourceByJsonMapper(document));
+        }
+        return sourceList;
+    }
+
+    private JMElasticsearchSerializationBenchmark.BenchmarkDocument buildDocument() {
+        switch (docSize) {
+            case "small":
+                return JMElasticsearchSerializationBenchmark.BenchmarkDocument.build(64, 4, 2);
+            case "medium":
+                return JMElasticsearchSerializationBenchmark.BenchmarkDocument.build(1024, 32, 8);
+            case "large":
+                return JMElasticsearchSerializationBenchmark.BenchmarkDocument.build(32 * 1024, 256, 64);
+            default:
+                throw new IllegalArgumentException("unknown docSize " + docSize);
+        }
+    }
+
+    private void ingest(JMElasticsearchClient jmElasticsearchClient, List<Map<String, Object>> sourceList)
+            throws InterruptedException {
+        JMLog.info(log, "ingest", ingestMode, docs, bulkSize, ingestConcurrency);
+        switch (ingestMode) {
+            case "bulkProcessor":
+                ingestWithBulkProcessor(jmElasticsearchClient, sourceList);
+                break;
+            case "bulkAsync":
+                ingestWithBulkAsync(jmElasticsearchClient, sourceList);
+                break;
+            case "index":
+                ingestWithIndex(jmElasticsearchClient, sourceList);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown ingestMode " + ingestMode);
+        }
+    }
+
+    private void ingestWithBulkProcessor(JMElasticsearchClient jmElasticsearchClient,
+            List<Map<String, Object>> sourceList) throws InterruptedException {
+        Map<Long, Long> startNanosMap = new ConcurrentHashMap<>();
+        CountDownLatch completedLatch = new CountDownLatch(sourceList.size());
+        jmElasticsearchClient.setBulkProcessor(new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+                startNanosMap.put(executionId, System.nanoTime());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                recordBulk(startNanosMap.remove(executionId), request.numberOfActions(), response);
+                countDown(completedLatch, request.numberOfActions());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                recordFailure(startNanosMap.remove(executionId), request.numberOfActions());
+                countDown(completedLatch, request.numberOfActions());
+            }
+        }, bulkSize, BULK_PROCESSOR_MAX_SIZE_KB, 1);
+        for (Map<String, Object> source : sourceList)
+            jmElasticsearchClient.sendWithBulkProcessor(source, INDEX);
+        jmElasticsearchClient.closeBulkProcessor();
+        completedLatch.await();
+    }
+
+    private void countDown(CountDownLatch countDownLatch, int count) {
+        for (int i = 0; i < count; i++)
+            countDownLatch.countDown();
+    }
+
+    private void ingestWithBulkAsync(JMElasticsearchClient jmElasticsearchClient,
+            List<Map<String, Object>> sourceList) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(ingestConcurrency);
+        for (int from = 0; from < sourceList.size(); from += bulkSize) {
+            List<Map<String, Object>> bulkSourceList =
+                    sourceList.subList(from, Math.min(from + bulkSize, sourceList.size()));
+            inFlight.acquire();
+            long startNanos = System.nanoTime();
+            jmElasticsearchClient.sendBulkDataAsync(bulkSourceList, INDEX, new ActionListener<>() {
+                @Override
+                public void onResponse(BulkResponse bulkResponse) {
+                    recordBulk(startNanos, bulkSourceList.size(), bulkResponse);
+                    inFlight.release();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    recordFailure(startNanos, bulkSourceList.size());
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(ingestConcurrency);
+    }
+
+    private void ingestWithIndex(JMElasticsearchClient jmElasticsearchClient, List<Map<String, Object>> sourceList)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(ingestConcurrency);
+        for (Map<String, Object> source : sourceList) {
+            inFlight.acquire();
+            long startNanos = System.nanoTime();
+            jmElasticsearchClient.prepareIndex().setIndex(INDEX).setSource(source).execute(new ActionListener<>() {
+                @Override
+                public void onResponse(IndexResponse indexResponse) {
+                    recordLatency(ingestRecorder, startNanos);
+                    ingestedDocCount.incrementAndGet();
+                    inFlight.release();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    recordFailure(startNanos, 1);
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(ingestConcurrency);
+    }
+
+    private void recordBulk(Long startNanos, int actions, BulkResponse bulkResponse) {
+        recordLatency(ingestRecorder, startNanos);
+        long failedCount = bulkResponse.hasFailures() ? Arrays.stream(bulkResponse.getItems())
+                .filter(BulkItemResponse::isFailed).count() : 0;
+        ingestedDocCount.addAndGet(actions - failedCount);
+        ingestErrorCount.addAndGet(failedCount);
+    }
+
+    private void recordFailure(Long startNanos, int actions) {
+        recordLatency(ingestRecorder, startNanos);
+        ingestErrorCount.addAndGet(actions);
+    }
+
+    private void recordLatency(Recorder recorder, Long startNanos) {
+        if (Objects.nonNull(startNanos))
+            recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    private void runSearchLoop(JMElasticsearchClient jmElasticsearchClient, AtomicBoolean searching) {
+        Random random = new Random();
+        while (searching.get()) {
+            long startNanos = System.nanoTime();
+            try {
+                jmElasticsearchClient.searchQuery(jmElasticsearchClient.getSearchRequestBuilder(
+                        QueryBuilders.termQuery("tags.keyword", "tag-" + random.nextInt(2)), INDEX).setSize(10));
+                recordLatency(searchRecorder, startNanos);
+            } catch (Exception e) {
+                searchErrorCount.incrementAndGet();
+            }
+        }
+    }
+
+    private Map<String, Object> buildPhaseReport(Histogram histogram, long elapsedNanos, Long docCount,
+            long errorCount) {
+        double elapsedSeconds = elapsedNanos / 1_000_000_000d;
+        Map<String, Object> phaseReport = new LinkedHashMap<>();
+        phaseReport.put("elapsedSeconds", elapsedSeconds);
+        phaseReport.put("requests", histogram.getTotalCount());
+        phaseReport.put("requestsPerSecond", histogram.getTotalCount() / elapsedSeconds);
+        if (Objects.nonNull(docCount)) {
+            phaseReport.put("docs", docCount);
+            phaseReport.put("docsPerSecond", docCount / elapsedSeconds);
+        }
+        phaseReport.put("errors", errorCount);
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("mean", histogram.getMean() / 1000);
+        for (String percentile : new String[]{"50", "90", "99", "99.9"})
+            latencyMillis.put("p" + percentile,
+                    histogram.getValueAtPercentile(Double.parseDouble(percentile)) / 1000d);
+        latencyMillis.put("max", histogram.getMaxValue() / 1000d);
+        phaseReport.put("latencyMillis", latencyMillis);
+        return phaseReport;
+    }
+
+    private Map<String, long[]> snapshotGc() {
+        Map<String, long[]> gcSnapshot = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans())
+            gcSnapshot.put(garbageCollectorMXBean.getName(), new long[]{garbageCollectorMXBean.getCollectionCount(),
+                    garbageCollectorMXBean.getCollectionTime()});
+        return gcSnapshot;
+    }
+
+    private Map<String, Object> buildGcReport(Map<String, long[]> gcSnapshot) {
+        Map<String, Object> gcReport = new LinkedHashMap<>();
+        snapshotGc().forEach((name, countAndTime) -> {
+            long[] startCountAndTime = gcSnapshot.getOrDefault(name, new long[2]);
+            gcReport.put(name, Map.of("count", countAndTime[0] - startCountAndTime[0], "timeMillis",
+                    countAndTime[1] - startCountAndTime[1]));
+        });
+        gcReport.put("heapUsedBytes", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        return gcReport;
+    }
+
+}
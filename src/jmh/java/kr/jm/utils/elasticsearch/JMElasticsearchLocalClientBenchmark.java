@@ -0,0 +1,101 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Jm elasticsearch local client benchmark.
+ * <p>
+ * Compares request latency of a {@link JMElasticsearchClient} connected over the transport port of an in-process
+ * {@link JMEmbeddedElasticsearch} with one built on the node's own client through
+ * {@link JMElasticsearchClient#JMElasticsearchClient(org.elasticsearch.node.Node)}. Sample time mode reports
+ * percentiles as well as the mean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JMElasticsearchLocalClientBenchmark {
+
+    private static final String INDEX = "benchmark";
+    private static final int DOC_COUNT = 1000;
+
+    @Param({"transport", "local"})
+    private String clientType;
+
+    private JMEmbeddedElasticsearch jmEmbeddedElasticsearch;
+    private JMElasticsearchClient jmElasticsearchClient;
+    private Map<String, Object> source;
+    private long counter;
+
+    /**
+     * Sets up.
+     */
+    @Setup
+    public void setUp() {
+        this.jmEmbeddedElasticsearch = JMEmbeddedElasticsearch.buildFastStart();
+        jmEmbeddedElasticsearch.start();
+        this.jmElasticsearchClient = "local".equals(clientType) ? new JMElasticsearchClient(jmEmbeddedElasticsearch)
+                : new JMElasticsearchClient(jmEmbeddedElasticsearch.getTransportIpPortPair());
+        this.source = JMElasticsearchUtil.buildSourceByJsonMapper(
+                JMElasticsearchSerializationBenchmark.BenchmarkDocument.build(64, 4, 2));
+        jmElasticsearchClient.create(INDEX);
+        for (int i = 0; i < DOC_COUNT; i++)
+            jmElasticsearchClient.prepareIndex().setIndex(INDEX).setId(String.valueOf(i)).setSource(source).get();
+        jmElasticsearchClient.admin().indices().prepareRefresh(INDEX).get();
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws IOException the io exception
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        jmElasticsearchClient.close();
+        jmEmbeddedElasticsearch.close();
+    }
+
+    /**
+     * Index index response.
+     *
+     * @return the index response
+     */
+    @Benchmark
+    public IndexResponse index() {
+        return jmElasticsearchClient.prepareIndex().setIndex(INDEX).setId(String.valueOf(counter++ % DOC_COUNT))
+                .setSource(source).get();
+    }
+
+    /**
+     * Get get response.
+     *
+     * @return the get response
+     */
+    @Benchmark
+    public GetResponse get() {
+        return jmElasticsearchClient.getDoc(INDEX, String.valueOf(counter++ % DOC_COUNT));
+    }
+
+    /**
+     * Search search response.
+     *
+     * @return the search response
+     */
+    @Benchmark
+    public SearchResponse search() {
+        return jmElasticsearchClient.searchQuery(jmElasticsearchClient
+                .getSearchRequestBuilder(QueryBuilders.termQuery("tags.keyword", "tag-" + (counter++ % 2)), INDEX)
+                .setSize(10));
+    }
+
+}
@@ -0,0 +1,145 @@
+package kr.jm.utils.elasticsearch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Jm elasticsearch serialization benchmark.
+ * <p>
+ * Compares building an index request through {@link JMElasticsearchUtil#buildSourceByJsonMapper(Object)} and
+ * {@link JMElasticsearchUtil#buildSourceByJsonMapper(String)}, which go through an intermediate map, with handing
+ * JSON bytes to the request directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JMElasticsearchSerializationBenchmark {
+
+    private static final String INDEX = "benchmark";
+    private static final ObjectMapper JsonMapper = new ObjectMapper();
+
+    @Param({"small", "medium", "large"})
+    private String documentSize;
+
+    private BenchmarkDocument document;
+    private String jsonString;
+
+    /**
+     * Sets up.
+     *
+     * @throws JsonProcessingException the json processing exception
+     */
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        switch (documentSize) {
+            case "small":
+                this.document = BenchmarkDocument.build(64, 4, 2);
+                break;
+            case "medium":
+                this.document = BenchmarkDocument.build(1024, 32, 8);
+                break;
+            default:
+                this.document = BenchmarkDocument.build(32 * 1024, 256, 64);
+        }
+        this.jsonString = JsonMapper.writeValueAsString(document);
+    }
+
+    /**
+     * Object to source map map.
+     *
+     * @return the map
+     */
+    @Benchmark
+    public Map<String, Object> objectToSourceMap() {
+        return JMElasticsearchUtil.buildSourceByJsonMapper(document);
+    }
+
+    /**
+     * Json string to source map map.
+     *
+     * @return the map
+     */
+    @Benchmark
+    public Map<String, Object> jsonStringToSourceMap() {
+        return JMElasticsearchUtil.buildSourceByJsonMapper(jsonString);
+    }
+
+    /**
+     * Object to index request via source map index request.
+     *
+     * @return the index request
+     */
+    @Benchmark
+    public IndexRequest objectToIndexRequestViaSourceMap() {
+        return new IndexRequest(INDEX).source(JMElasticsearchUtil.buildSourceByJsonMapper(document));
+    }
+
+    /**
+     * Json string to index request via source map index request.
+     *
+     * @return the index request
+     */
+    @Benchmark
+    public IndexRequest jsonStringToIndexRequestViaSourceMap() {
+        return new IndexRequest(INDEX).source(JMElasticsearchUtil.buildSourceByJsonMapper(jsonString));
+    }
+
+    /**
+     * Object to index request via bytes index request.
+     *
+     * @return the index request
+     * @throws JsonProcessingException the json processing exception
+     */
+    @Benchmark
+    public IndexRequest objectToIndexRequestViaBytes() throws JsonProcessingException {
+        return new IndexRequest(INDEX).source(JsonMapper.writeValueAsBytes(document), XContentType.JSON);
+    }
+
+    /**
+     * Json string to index request via bytes index request.
+     *
+     * @return the index request
+     */
+    @Benchmark
+    public IndexRequest jsonStringToIndexRequestViaBytes() {
+        return new IndexRequest(INDEX).source(jsonString, XContentType.JSON);
+    }
+
+    /**
+     * The type Benchmark document.
+     */
+    public static class BenchmarkDocument {
+        public String id;
+        public long timestamp;
+        public String message;
+        public List<String> tags;
+        public Map<String, Object> attributes;
+
+        static BenchmarkDocument build(int messageLength, int attributeCount, int tagCount) {
+            BenchmarkDocument document = new BenchmarkDocument();
+            document.id = "id-" + messageLength;
+            document.timestamp = 1431392340000L;
+            document.message = "m".repeat(messageLength);
+            document.tags = new ArrayList<>();
+            for (int i = 0; i < tagCount; i++)
+                document.tags.add("tag-" + i);
+            document.attributes = new LinkedHashMap<>();
+            for (int i = 0; i < attributeCount; i++)
+                document.attributes.put("attribute_" + i, i % 2 == 0 ? (Object) ("value-" + i) : (Object) (long) i);
+            return document;
+        }
+    }
+
+}
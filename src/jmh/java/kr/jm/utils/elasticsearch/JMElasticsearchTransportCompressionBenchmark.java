@@ -0,0 +1,83 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Jm elasticsearch transport compression benchmark.
+ * <p>
+ * Sends bulks of {@value #BULK_ACTIONS} documents over the transport port of an in-process
+ * {@link JMEmbeddedElasticsearch}, with {@code transport.compress} off and on in the client. Throughput is per
+ * document; the payload bytes per bulk, uncompressed, are printed at tear down from
+ * {@link JMElasticsearchPayloadAccounting}. Over loopback compression only costs CPU, so the result is the upper bound
+ * of its overhead rather than what a slow network gains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(JMElasticsearchTransportCompressionBenchmark.BULK_ACTIONS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JMElasticsearchTransportCompressionBenchmark {
+
+    /**
+     * The constant BULK_ACTIONS.
+     */
+    public static final int BULK_ACTIONS = 1000;
+    private static final String INDEX = "benchmark";
+
+    @Param({"false", "true"})
+    private boolean transportCompress;
+
+    private JMEmbeddedElasticsearch jmEmbeddedElasticsearch;
+    private JMElasticsearchClient jmElasticsearchClient;
+    private Map<String, Object> source;
+
+    /**
+     * Sets up.
+     */
+    @Setup
+    public void setUp() {
+        this.jmEmbeddedElasticsearch = JMEmbeddedElasticsearch.buildFastStart();
+        jmEmbeddedElasticsearch.start();
+        this.jmElasticsearchClient = new JMElasticsearchClient(jmEmbeddedElasticsearch.getTransportIpPortPair(),
+                JMElasticsearchClient.getSettingsBuilder("benchmark-client", false, null, transportCompress)
+                        .build());
+        this.source = JMElasticsearchUtil.buildSourceByJsonMapper(
+                JMElasticsearchSerializationBenchmark.BenchmarkDocument.build(64, 4, 2));
+        jmElasticsearchClient.create(INDEX);
+        jmElasticsearchClient.getPayloadAccounting().setEnabled(true);
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws IOException the io exception
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.println(jmElasticsearchClient.getPayloadAccounting().getOperationPayloadStatsMap());
+        jmElasticsearchClient.close();
+        jmEmbeddedElasticsearch.close();
+    }
+
+    /**
+     * Bulk bulk response.
+     *
+     * @return the bulk response
+     */
+    @Benchmark
+    public BulkResponse bulk() {
+        BulkRequestBuilder bulkRequestBuilder = jmElasticsearchClient.prepareBulk();
+        for (int i = 0; i < BULK_ACTIONS; i++)
+            bulkRequestBuilder.add(jmElasticsearchClient.prepareIndex().setIndex(INDEX).setSource(source));
+        return bulkRequestBuilder.get();
+    }
+
+}
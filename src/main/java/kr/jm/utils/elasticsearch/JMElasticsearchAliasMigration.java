@@ -0,0 +1,275 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.BulkByScrollTask;
+import org.elasticsearch.index.reindex.ReindexRequestBuilder;
+import org.elasticsearch.script.Script;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * The type Jm elasticsearch alias migration.
+ * <p>
+ * Moves an alias to a new versioned index ({@code <alias>-v<N>}) without downtime: {@link #createTargetIndex} creates
+ * the index, {@link #reindex} or {@link #startReingest()} fills it under bulk-load settings, {@link #catchUp()} copies
+ * documents written to the source since the last pass by their timestamp field, and {@link #swapAlias()} moves the
+ * alias in one atomic aliases request. Catch-up passes run the script given to {@link #reindex}, so documents are
+ * transformed the same way; after a reingest the source holds untransformed documents, so catch-up needs a script of
+ * its own, {@link #catchUp(Script)}, and is otherwise left to the caller, who reingests the writes made meanwhile.
+ * The source indices are made read-only before the final pass, so writes through the alias fail until the swap instead
+ * of being lost, and no pass runs after the swap, where it could overwrite newer writes to the target. The source may
+ * also be a concrete index named like the alias, which is then removed in the swap request. Deletes on the source
+ * during the migration are not tracked.
+ */
+@Slf4j
+public class JMElasticsearchAliasMigration {
+
+    private static final String VERSION_SEPARATOR = "-v";
+    private static final long CATCH_UP_OVERLAP_MILLIS = 1000;
+
+    private final JMElasticsearchClient jmESClient;
+    @Getter
+    private final String alias;
+    @Getter
+    private final String timestampField;
+    @Getter
+    private final List<String> sourceIndexList;
+    private final boolean concreteSource;
+    @Getter
+    private String targetIndex;
+    private long catchUpFromMillis;
+    private Script catchUpScript;
+    private boolean reingested;
+    @Getter
+    private long caughtUpDocCount;
+    @Getter
+    private boolean swapped;
+
+    /**
+     * Instantiates a new Jm elasticsearch alias migration.
+     *
+     * @param jmElasticsearchClient the jm elasticsearch client
+     * @param alias                 the alias, or the name of the concrete index to replace with an alias
+     * @param timestampField        the timestamp field set on every write, used to catch up
+     */
+    JMElasticsearchAliasMigration(JMElasticsearchClient jmElasticsearchClient, String alias, String timestampField) {
+        this.jmESClient = jmElasticsearchClient;
+        this.alias = alias;
+        this.timestampField = timestampField;
+        List<String> aliasIndexList = new ArrayList<>();
+        jmElasticsearchClient.admin().indices().prepareGetAliases(alias).get().getAliases()
+                .forEach(cursor -> {
+                    if (!cursor.value.isEmpty())
+                        aliasIndexList.add(cursor.key);
+                });
+        this.concreteSource = aliasIndexList.isEmpty() && jmElasticsearchClient.isExists(alias);
+        this.sourceIndexList = Collections.unmodifiableList(concreteSource ? List.of(alias) : aliasIndexList);
+        JMLog.info(log, "JMElasticsearchAliasMigration", alias, timestampField, sourceIndexList, concreteSource);
+    }
+
+    /**
+     * Create target index string, named after the highest existing version plus one.
+     *
+     * @param indexSettings the index settings
+     * @param mapping       the mapping, null for dynamic mapping
+     * @return the target index
+     */
+    public String createTargetIndex(Settings indexSettings, Map<String, Object> mapping) {
+        if (Objects.nonNull(targetIndex))
+            JMException.throwRunTimeException("target index already created - " + targetIndex);
+        String versionedIndex = alias + VERSION_SEPARATOR + (getLatestVersion() + 1);
+        CreateIndexRequestBuilder createIndexRequestBuilder =
+                jmESClient.admin().indices().prepareCreate(versionedIndex).setSettings(indexSettings);
+        if (Objects.nonNull(mapping))
+            createIndexRequestBuilder.addMapping("_doc", mapping);
+        this.catchUpFromMillis = System.currentTimeMillis();
+        JMElasticsearchUtil.logRequestQueryAndReturn("createTargetIndex", createIndexRequestBuilder,
+                createIndexRequestBuilder.execute());
+        this.targetIndex = versionedIndex;
+        return versionedIndex;
+    }
+
+    private int getLatestVersion() {
+        String versionPrefix = alias + VERSION_SEPARATOR;
+        return jmESClient.getAllIndices().stream().filter(index -> index.startsWith(versionPrefix))
+                .map(index -> index.substring(versionPrefix.length())).filter(version -> version.matches("\\d+"))
+                .mapToInt(Integer::parseInt).max().orElse(0);
+    }
+
+    /**
+     * Start reingest, writing into the target index under bulk-load settings until the session is closed. Catch-up
+     * without a script is refused from then on.
+     *
+     * @return the jm elasticsearch bulk load session
+     */
+    public JMElasticsearchBulkLoadSession startReingest() {
+        JMElasticsearchBulkLoadSession bulkLoadSession = jmESClient.startBulkLoadSession(getTargetIndexOrThrow());
+        this.reingested = true;
+        return bulkLoadSession;
+    }
+
+    /**
+     * Reindex the source into the target index under bulk-load settings.
+     *
+     * @param requestsPerSecond the requests per second, {@link Float#POSITIVE_INFINITY} for unthrottled
+     * @param progressListener  the progress listener, null for none
+     * @return the bulk by scroll response
+     */
+    public BulkByScrollResponse reindex(float requestsPerSecond,
+            Consumer<BulkByScrollTask.Status> progressListener) {
+        return reindex(null, requestsPerSecond, progressListener);
+    }
+
+    /**
+     * Reindex the source into the target index under bulk-load settings, transforming each document with the script,
+     * which the later catch-up passes run as well.
+     *
+     * @param script            the script, null for none
+     * @param requestsPerSecond the requests per second, {@link Float#POSITIVE_INFINITY} for unthrottled
+     * @param progressListener  the progress listener, null for none
+     * @return the bulk by scroll response
+     */
+    public BulkByScrollResponse reindex(Script script, float requestsPerSecond,
+            Consumer<BulkByScrollTask.Status> progressListener) {
+        String targetIndex = getTargetIndexOrThrow();
+        if (sourceIndexList.isEmpty())
+            JMException.throwRunTimeException("no source index to reindex for " + alias + ", use startReingest");
+        String[] sourceIndices = sourceIndexList.toArray(String[]::new);
+        jmESClient.admin().indices().prepareRefresh(sourceIndices).get();
+        this.catchUpScript = script;
+        try (JMElasticsearchBulkLoadSession ignored = jmESClient.startBulkLoadSession(targetIndex)) {
+            return jmESClient.reindexAsync(null, targetIndex, script, requestsPerSecond, progressListener,
+                    sourceIndices).getResponse();
+        }
+    }
+
+    /**
+     * Catch up, copying source documents whose timestamp is at or after the previous pass, with a small overlap for
+     * clock skew, through the script given to {@link #reindex}.
+     *
+     * @return the copied doc count of this pass
+     */
+    public long catchUp() {
+        return catchUp(catchUpScript);
+    }
+
+    /**
+     * Catch up, copying source documents whose timestamp is at or after the previous pass, with a small overlap for
+     * clock skew, through the script, which is kept for the following passes.
+     *
+     * @param script the script, null for none, which is refused after {@link #startReingest()}
+     * @return the copied doc count of this pass
+     */
+    public long catchUp(Script script) {
+        String targetIndex = getTargetIndexOrThrow();
+        if (swapped)
+            JMException.throwRunTimeException("catch-up after the swap would overwrite newer writes - " + alias);
+        if (reingested && Objects.isNull(script))
+            JMException.throwRunTimeException(
+                    "catch-up without a script after reingest would copy untransformed source - " + alias);
+        this.catchUpScript = script;
+        if (sourceIndexList.isEmpty())
+            return 0;
+        long passStartMillis = System.currentTimeMillis();
+        String[] sourceIndices = sourceIndexList.toArray(String[]::new);
+        jmESClient.admin().indices().prepareRefresh(sourceIndices).get();
+        ReindexRequestBuilder reindexRequestBuilder = jmESClient.getReindexRequestBuilder(
+                QueryBuilders.rangeQuery(timestampField).gte(catchUpFromMillis - CATCH_UP_OVERLAP_MILLIS),
+                targetIndex, script, sourceIndices);
+        BulkByScrollResponse bulkByScrollResponse = JMElasticsearchUtil
+                .logRequestQueryAndReturn("catchUp", reindexRequestBuilder, reindexRequestBuilder.execute());
+        jmESClient.admin().indices().prepareRefresh(targetIndex).get();
+        this.catchUpFromMillis = passStartMillis;
+        long copiedDocCount = bulkByScrollResponse.getCreated() + bulkByScrollResponse.getUpdated();
+        this.caughtUpDocCount += copiedDocCount;
+        JMLog.info(log, "catchUp", alias, targetIndex, copiedDocCount, bulkByScrollResponse.getTook());
+        return copiedDocCount;
+    }
+
+    /**
+     * Catch up until a pass copies no more than the given doc count.
+     *
+     * @param maxPasses           the max passes
+     * @param maxLastPassDocCount the doc count a pass may copy and still count as caught up
+     * @return true when caught up within max passes
+     */
+    public boolean catchUp(int maxPasses, long maxLastPassDocCount) {
+        for (int i = 0; i < maxPasses; i++)
+            if (catchUp() <= maxLastPassDocCount)
+                return true;
+        return false;
+    }
+
+    /**
+     * Swap alias, after a final catch-up pass, from the source to the target index in one atomic request. The source
+     * indices are made read-only before that pass and stay so, or are unblocked again when the swap fails. After a
+     * reingest without a catch-up script no pass runs.
+     */
+    public void swapAlias() {
+        String targetIndex = getTargetIndexOrThrow();
+        boolean catchingUp = !reingested || Objects.nonNull(catchUpScript);
+        if (!catchingUp)
+            log.warn("swapAlias - no catch-up after reingest, writes to {} since then are left to the caller",
+                    sourceIndexList);
+        setWriteBlock(true);
+        try {
+            if (catchingUp)
+                catchUp();
+            IndicesAliasesRequestBuilder indicesAliasesRequestBuilder =
+                    jmESClient.admin().indices().prepareAliases();
+            if (concreteSource)
+                indicesAliasesRequestBuilder.removeIndex(alias);
+            else if (!sourceIndexList.isEmpty())
+                indicesAliasesRequestBuilder.removeAlias(sourceIndexList.toArray(String[]::new), alias);
+            indicesAliasesRequestBuilder.addAliasAction(
+                    IndicesAliasesRequest.AliasActions.add().index(targetIndex).alias(alias).writeIndex(true));
+            if (!JMElasticsearchUtil.logRequestQueryAndReturn("swapAlias", indicesAliasesRequestBuilder,
+                    indicesAliasesRequestBuilder.execute()).isAcknowledged())
+                JMException.throwRunTimeException("alias swap not acknowledged - " + alias + " to " + targetIndex);
+        } catch (RuntimeException e) {
+            setWriteBlock(false);
+            throw e;
+        }
+        this.swapped = true;
+    }
+
+    private void setWriteBlock(boolean blocked) {
+        if (sourceIndexList.isEmpty())
+            return;
+        JMLog.info(log, "setWriteBlock", sourceIndexList, blocked);
+        jmESClient.admin().indices().prepareUpdateSettings(sourceIndexList.toArray(String[]::new))
+                .setSettings(Settings.builder().put(IndexMetadata.SETTING_BLOCKS_WRITE, blocked)).get();
+    }
+
+    /**
+     * Delete source indices, once the alias is swapped.
+     */
+    public void deleteSourceIndices() {
+        if (!swapped)
+            JMException.throwRunTimeException("alias not swapped yet - " + alias);
+        if (!concreteSource && !sourceIndexList.isEmpty())
+            jmESClient.deleteIndices(sourceIndexList.toArray(String[]::new));
+    }
+
+    private String getTargetIndexOrThrow() {
+        if (Objects.isNull(targetIndex))
+            JMException.throwRunTimeException("target index not created - " + alias);
+        return targetIndex;
+    }
+
+}
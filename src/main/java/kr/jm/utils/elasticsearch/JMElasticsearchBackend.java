@@ -0,0 +1,39 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
+
+import java.io.Closeable;
+
+/**
+ * The interface Jm elasticsearch backend.
+ * <p>
+ * Carries the requests of {@link JMElasticsearchClient} in place of its transport connection. The client still
+ * applies rate limits, payload accounting and bulkheads, then hands every action the backend supports to it; the other
+ * actions go over the transport connection as before.
+ */
+public interface JMElasticsearchBackend extends Closeable {
+
+    /**
+     * Supports boolean.
+     *
+     * @param action the action
+     * @return the boolean
+     */
+    boolean supports(ActionType<?> action);
+
+    /**
+     * Execute.
+     *
+     * @param <Request>  the type parameter
+     * @param <Response> the type parameter
+     * @param action     the action
+     * @param request    the request
+     * @param listener   the listener
+     */
+    <Request extends ActionRequest, Response extends ActionResponse> void execute(ActionType<Response> action,
+            Request request, ActionListener<Response> listener);
+
+}
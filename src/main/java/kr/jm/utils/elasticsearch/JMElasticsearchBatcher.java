@@ -0,0 +1,158 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Jm elasticsearch batcher.
+ * <p>
+ * Coalesces requests submitted within {@code maxLingerMillis}, or up to
+ * {@code maxBatchSize} requests, into a single batch and hands the batch to
+ * {@link #sendBatch(List, List)}. Requests submitted after {@link #close()}, by
+ * callers still holding the batcher, are sent right away as batches of one.
+ *
+ * @param <T> the request type
+ * @param <R> the response type
+ */
+@Slf4j
+public abstract class JMElasticsearchBatcher<T, R> implements AutoCloseable {
+
+    private final String name;
+    private final ScheduledExecutorService lingerScheduler;
+    private final Object lock = new Object();
+    @Getter
+    @Setter
+    private volatile int maxBatchSize;
+    @Getter
+    @Setter
+    private volatile long maxLingerMillis;
+    private List<T> requestList;
+    private List<ActionListener<R>> listenerList;
+    private ScheduledFuture<?> lingerFuture;
+    private boolean closed;
+
+    /**
+     * Instantiates a new Jm elasticsearch batcher.
+     *
+     * @param name            the name
+     * @param maxBatchSize    the max batch size
+     * @param maxLingerMillis the max linger millis
+     */
+    protected JMElasticsearchBatcher(String name, int maxBatchSize, long maxLingerMillis) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerMillis = maxLingerMillis;
+        this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory(name));
+        newBatch();
+    }
+
+    private void newBatch() {
+        this.requestList = new ArrayList<>(maxBatchSize);
+        this.listenerList = new ArrayList<>(maxBatchSize);
+    }
+
+    /**
+     * Submit.
+     *
+     * @param request  the request
+     * @param listener the listener
+     */
+    public void submit(T request, ActionListener<R> listener) {
+        List<T> fullRequestList = null;
+        List<ActionListener<R>> fullListenerList = null;
+        RejectedExecutionException rejectedException = null;
+        synchronized (lock) {
+            if (closed) {
+                fullRequestList = List.of(request);
+                fullListenerList = List.of(listener);
+            } else {
+                requestList.add(request);
+                listenerList.add(listener);
+                if (requestList.size() >= maxBatchSize) {
+                    fullRequestList = requestList;
+                    fullListenerList = listenerList;
+                    cancelLinger();
+                    newBatch();
+                } else if (requestList.size() == 1)
+                    try {
+                        this.lingerFuture =
+                                lingerScheduler.schedule(this::flush, maxLingerMillis, TimeUnit.MILLISECONDS);
+                    } catch (RejectedExecutionException e) {
+                        rejectedException = e;
+                        fullListenerList = listenerList;
+                        newBatch();
+                    }
+            }
+        }
+        if (Objects.nonNull(rejectedException)) {
+            JMLog.warn(log, "submit", name, rejectedException.getMessage());
+            for (ActionListener<R> pendingListener : fullListenerList)
+                pendingListener.onFailure(rejectedException);
+        } else if (Objects.nonNull(fullRequestList))
+            sendBatchSafely(fullRequestList, fullListenerList);
+    }
+
+    private void cancelLinger() {
+        if (Objects.nonNull(lingerFuture)) {
+            lingerFuture.cancel(false);
+            this.lingerFuture = null;
+        }
+    }
+
+    /**
+     * Flush.
+     */
+    public void flush() {
+        List<T> pendingRequestList;
+        List<ActionListener<R>> pendingListenerList;
+        synchronized (lock) {
+            if (requestList.isEmpty())
+                return;
+            pendingRequestList = requestList;
+            pendingListenerList = listenerList;
+            cancelLinger();
+            newBatch();
+        }
+        sendBatchSafely(pendingRequestList, pendingListenerList);
+    }
+
+    private void sendBatchSafely(List<T> requestList, List<ActionListener<R>> listenerList) {
+        JMLog.debug(log, "sendBatch", name, requestList.size());
+        try {
+            sendBatch(requestList, listenerList);
+        } catch (Exception e) {
+            listenerList.forEach(listener -> listener.onFailure(e));
+        }
+    }
+
+    /**
+     * Send batch.
+     *
+     * @param requestList  the request list
+     * @param listenerList the listener list, in the same order as the request list
+     */
+    protected abstract void sendBatch(List<T> requestList, List<ActionListener<R>> listenerList);
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            this.closed = true;
+        }
+        flush();
+        lingerScheduler.shutdown();
+    }
+
+}
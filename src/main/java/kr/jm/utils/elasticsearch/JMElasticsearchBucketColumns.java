@@ -0,0 +1,195 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregation;
+import org.elasticsearch.search.aggregations.metrics.Stats;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The type Jm elasticsearch bucket columns.
+ * <p>
+ * The buckets of a histogram, date histogram or terms aggregation as columns of primitive arrays, one slot per bucket:
+ * keys, doc counts, and a value column per single-value metric or pipeline sub-aggregation. Stats sub-aggregations
+ * give a column per statistic, named like {@code price.avg}. Date keys are epoch millis and integer keys are kept as
+ * long; floating point keys, as of a histogram, go to the double keys and also to the long keys only when every key
+ * is a whole number, so a fractional interval never loses its keys to truncation; string keys go to the key strings
+ * instead. A metric missing from a bucket, as a derivative is from the first, is {@link Double#NaN}. Bucket
+ * sub-aggregations are not extracted.
+ */
+@Slf4j
+@Getter
+@ToString
+public class JMElasticsearchBucketColumns {
+
+    private static final String[] STATS_VALUE_NAMES = {"count", "min", "max", "avg", "sum"};
+
+    private final String name;
+    private final int size;
+    /**
+     * The keys, null when the keys are strings or floating point numbers that are not all whole.
+     */
+    private final long[] keys;
+    /**
+     * The double keys, null unless the keys are floating point numbers.
+     */
+    private final double[] doubleKeys;
+    /**
+     * The key strings, null when the keys are numbers or dates.
+     */
+    private final String[] keyStrings;
+    private final long[] docCounts;
+    @ToString.Exclude
+    private final Map<String, double[]> valueColumnMap;
+
+    private JMElasticsearchBucketColumns(MultiBucketsAggregation multiBucketsAggregation) {
+        List<? extends MultiBucketsAggregation.Bucket> bucketList = multiBucketsAggregation.getBuckets();
+        this.name = multiBucketsAggregation.getName();
+        this.size = bucketList.size();
+        Object firstKey = size > 0 ? bucketList.get(0).getKey() : null;
+        boolean isStringKey = firstKey instanceof String;
+        this.keyStrings = isStringKey ? new String[size] : null;
+        this.doubleKeys = firstKey instanceof Double || firstKey instanceof Float ? new double[size] : null;
+        if (Objects.nonNull(doubleKeys))
+            for (int i = 0; i < size; i++)
+                doubleKeys[i] = extractDoubleKey(bucketList.get(i).getKey());
+        this.keys = isStringKey || Objects.nonNull(doubleKeys) && !Arrays.stream(doubleKeys).allMatch(this::isWhole) ?
+                null : new long[size];
+        this.docCounts = new long[size];
+        Map<String, double[]> valueColumnMap = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            MultiBucketsAggregation.Bucket bucket = bucketList.get(i);
+            if (isStringKey)
+                keyStrings[i] = bucket.getKeyAsString();
+            else if (Objects.nonNull(keys))
+                keys[i] = extractKey(bucket.getKey());
+            docCounts[i] = bucket.getDocCount();
+            for (Aggregation aggregation : bucket.getAggregations())
+                extractValues(valueColumnMap, i, aggregation);
+        }
+        this.valueColumnMap = Collections.unmodifiableMap(valueColumnMap);
+    }
+
+    private long extractKey(Object key) {
+        if (key instanceof Number)
+            return ((Number) key).longValue();
+        if (key instanceof ZonedDateTime)
+            return ((ZonedDateTime) key).toInstant().toEpochMilli();
+        throw JMException.handleExceptionAndReturnRuntimeEx(log,
+                new IllegalArgumentException("unsupported bucket key - " + key.getClass()), "extractKey", name, key);
+    }
+
+    private double extractDoubleKey(Object key) {
+        if (key instanceof Number)
+            return ((Number) key).doubleValue();
+        throw JMException.handleExceptionAndReturnRuntimeEx(log,
+                new IllegalArgumentException("unsupported bucket key - " + key.getClass()), "extractDoubleKey", name,
+                key);
+    }
+
+    private boolean isWhole(double key) {
+        return key == Math.rint(key) && Math.abs(key) < 0x1p63;
+    }
+
+    private void extractValues(Map<String, double[]> valueColumnMap, int index, Aggregation aggregation) {
+        if (aggregation instanceof NumericMetricsAggregation.SingleValue)
+            getValueColumn(valueColumnMap, aggregation.getName())[index] =
+                    ((NumericMetricsAggregation.SingleValue) aggregation).value();
+        else if (aggregation instanceof Stats) {
+            Stats stats = (Stats) aggregation;
+            double[] statsValues = {stats.getCount(), stats.getMin(), stats.getMax(), stats.getAvg(), stats.getSum()};
+            for (int i = 0; i < STATS_VALUE_NAMES.length; i++)
+                getValueColumn(valueColumnMap, aggregation.getName() + "." + STATS_VALUE_NAMES[i])[index] =
+                        statsValues[i];
+        }
+    }
+
+    private double[] getValueColumn(Map<String, double[]> valueColumnMap, String valueName) {
+        return valueColumnMap.computeIfAbsent(valueName, key -> {
+            double[] valueColumn = new double[size];
+            Arrays.fill(valueColumn, Double.NaN);
+            return valueColumn;
+        });
+    }
+
+    /**
+     * Gets value names.
+     *
+     * @return the value column names
+     */
+    @ToString.Include(name = "valueNames")
+    public Set<String> getValueNames() {
+        return valueColumnMap.keySet();
+    }
+
+    /**
+     * Get values double [ ].
+     *
+     * @param valueName the sub aggregation name, or name.statistic for stats
+     * @return the value column, null when no bucket has the value
+     */
+    public double[] getValues(String valueName) {
+        return valueColumnMap.get(valueName);
+    }
+
+    /**
+     * Extract jm elasticsearch bucket columns.
+     *
+     * @param searchResponse  the search response
+     * @param aggregationName the aggregation name
+     * @return the jm elasticsearch bucket columns
+     */
+    public static JMElasticsearchBucketColumns extract(SearchResponse searchResponse, String aggregationName) {
+        return extract(getAggregation(searchResponse.getAggregations(), aggregationName));
+    }
+
+    /**
+     * Extract jm elasticsearch bucket columns.
+     *
+     * @param multiBucketsAggregation the multi buckets aggregation
+     * @return the jm elasticsearch bucket columns
+     */
+    public static JMElasticsearchBucketColumns extract(MultiBucketsAggregation multiBucketsAggregation) {
+        return new JMElasticsearchBucketColumns(multiBucketsAggregation);
+    }
+
+    /**
+     * Extract metric values double [ ].
+     *
+     * @param aggregations the aggregations
+     * @param metricNames  the single-value metric names
+     * @return the metric values in the order of the names
+     */
+    public static double[] extractMetricValues(Aggregations aggregations, String... metricNames) {
+        double[] metricValues = new double[metricNames.length];
+        for (int i = 0; i < metricNames.length; i++)
+            metricValues[i] =
+                    JMElasticsearchBucketColumns.<NumericMetricsAggregation.SingleValue>getAggregation(aggregations,
+                            metricNames[i]).value();
+        return metricValues;
+    }
+
+    private static <A extends Aggregation> A getAggregation(Aggregations aggregations, String aggregationName) {
+        A aggregation = Objects.isNull(aggregations) ? null : aggregations.get(aggregationName);
+        if (Objects.isNull(aggregation))
+            throw JMException.handleExceptionAndReturnRuntimeEx(log,
+                    new IllegalArgumentException("no aggregation - " + aggregationName), "getAggregation",
+                    aggregationName);
+        return aggregation;
+    }
+
+}
@@ -4,6 +4,7 @@ import kr.jm.utils.exception.JMException;
 import kr.jm.utils.helper.JMLog;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.*;
 import org.elasticsearch.action.bulk.BulkProcessor.Builder;
 import org.elasticsearch.action.bulk.BulkProcessor.Listener;
@@ -252,9 +253,25 @@ class JMElasticsearchBulk {
      * @param indexRequest the index request
      */
     public void sendWithBulkProcessor(IndexRequest indexRequest) {
+        sendWithBulkProcessor((DocWriteRequest<?>) indexRequest);
+    }
+
+    /**
+     * Send with bulk processor.
+     *
+     * @param docWriteRequest the index, update or delete request
+     */
+    public void sendWithBulkProcessor(DocWriteRequest<?> docWriteRequest) {
         Optional.ofNullable(this.bulkProcessor).orElseGet(
                 () -> setAndReturnBulkProcessor(getBuilder(bulkProcessorListener).build()))
-                .add(indexRequest);
+                .add(docWriteRequest);
+    }
+
+    /**
+     * Flush bulk processor.
+     */
+    public void flushBulkProcessor() {
+        Optional.ofNullable(bulkProcessor).ifPresent(BulkProcessor::flush);
     }
 
     /**
@@ -271,9 +288,7 @@ class JMElasticsearchBulk {
      * @param index          the index
      */
     public void sendBulkDataAsync(List<? extends Map<String, Object>> bulkSourceList, String index) {
-        executeBulkRequestAsync(buildBulkIndexRequestBuilder(
-                bulkSourceList.stream().map(source -> jmESClient.prepareIndex().setIndex(index).setSource(source))
-                        .collect(toList())));
+        executeBulkRequestAsync(buildBulkIndexRequestBuilderWithSource(bulkSourceList, index));
     }
 
     /**
@@ -285,9 +300,8 @@ class JMElasticsearchBulk {
      */
     public void sendBulkDataAsync(List<? extends Map<String, Object>> bulkSourceList, String index,
             ActionListener<BulkResponse> bulkResponseActionListener) {
-        executeBulkRequestAsync(buildBulkIndexRequestBuilder(
-                bulkSourceList.stream().map(source -> jmESClient.prepareIndex().setIndex(index).setSource(source))
-                        .collect(toList())), bulkResponseActionListener);
+        executeBulkRequestAsync(buildBulkIndexRequestBuilderWithSource(bulkSourceList, index),
+                bulkResponseActionListener);
     }
 
     /**
@@ -297,9 +311,7 @@ class JMElasticsearchBulk {
      * @param index          the index
      */
     public void sendBulkDataWithObjectMapperAsync(List<Object> objectBulkData, String index) {
-        executeBulkRequestAsync(buildBulkIndexRequestBuilder(objectBulkData.stream()
-                .map(sourceObject -> jmESClient.prepareIndex().setIndex(index)
-                        .setSource(JMElasticsearchUtil.buildSourceByJsonMapper(sourceObject))).collect(toList())));
+        executeBulkRequestAsync(buildBulkIndexRequestBuilderWithObjectMapper(objectBulkData, index));
     }
 
     /**
@@ -311,12 +323,37 @@ class JMElasticsearchBulk {
      */
     public void sendBulkDataWithObjectMapperAsync(List<Object> objectBulkData, String index,
             ActionListener<BulkResponse> bulkResponseActionListener) {
-        executeBulkRequestAsync(buildBulkIndexRequestBuilder(objectBulkData.stream()
-                        .map(sourceObject -> jmESClient.prepareIndex().setIndex(index)
-                                .setSource(JMElasticsearchUtil.buildSourceByJsonMapper(sourceObject))).collect(toList())),
+        executeBulkRequestAsync(buildBulkIndexRequestBuilderWithObjectMapper(objectBulkData, index),
                 bulkResponseActionListener);
     }
 
+    /**
+     * Build bulk index request builder with source bulk request builder.
+     *
+     * @param bulkSourceList the bulk source list
+     * @param index          the index
+     * @return the bulk request builder
+     */
+    BulkRequestBuilder buildBulkIndexRequestBuilderWithSource(List<? extends Map<String, Object>> bulkSourceList,
+            String index) {
+        return buildBulkIndexRequestBuilder(
+                bulkSourceList.stream().map(source -> jmESClient.prepareIndex().setIndex(index).setSource(source))
+                        .collect(toList()));
+    }
+
+    /**
+     * Build bulk index request builder with object mapper bulk request builder.
+     *
+     * @param objectBulkData the object bulk data
+     * @param index          the index
+     * @return the bulk request builder
+     */
+    BulkRequestBuilder buildBulkIndexRequestBuilderWithObjectMapper(List<Object> objectBulkData, String index) {
+        return buildBulkIndexRequestBuilder(objectBulkData.stream()
+                .map(sourceObject -> jmESClient.prepareIndex().setIndex(index)
+                        .setSource(JMElasticsearchUtil.buildSourceByJsonMapper(sourceObject))).collect(toList()));
+    }
+
     /**
      * Build bulk index request builder bulk request builder.
      *
@@ -0,0 +1,234 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.settings.Settings;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Jm elasticsearch bulk load session.
+ * <p>
+ * While open, the target indices run with {@code refresh_interval=-1}, {@code number_of_replicas=0} and async
+ * translog, and documents go through a bulk processor owned by the session. {@link #close()} drains the bulk
+ * processor, restores the original settings, refreshes and optionally force-merges, running every phase even when an
+ * earlier one fails and throwing the first failure at the end, so a drain that times out or is interrupted with bulks
+ * still in flight fails the close. Aliases and wildcards are resolved to the concrete
+ * indices, whose own settings are saved and restored, and the settings are restored as well when opening the session
+ * fails. Time spent in each phase is kept in {@link #getPhaseMillisMap()}.
+ */
+@Slf4j
+public class JMElasticsearchBulkLoadSession implements AutoCloseable {
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+    private static final String TRANSLOG_DURABILITY = "index.translog.durability";
+    private static final Map<String, String> BULK_LOAD_SETTINGS =
+            Map.of(REFRESH_INTERVAL, "-1", NUMBER_OF_REPLICAS, "0", TRANSLOG_DURABILITY, "async");
+    private static final long DRAIN_TIMEOUT_MINUTES = 10;
+
+    private final JMElasticsearchClient jmESClient;
+    private final String[] indices;
+    private final int forceMergeMaxNumSegments;
+    private final Map<String, Map<String, String>> originalSettingsMap = new HashMap<>();
+    private final Map<String, Long> phaseMillisMap = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicLong sentDocCount = new AtomicLong();
+    private final AtomicLong failedDocCount = new AtomicLong();
+    private final BulkProcessor bulkProcessor;
+    private final long openedNanos;
+    private boolean closed;
+
+    /**
+     * Instantiates a new Jm elasticsearch bulk load session.
+     *
+     * @param jmElasticsearchClient    the jm elasticsearch client
+     * @param bulkActions              the bulk actions
+     * @param bulkSizeKB               the bulk size kb
+     * @param forceMergeMaxNumSegments the force merge max num segments, 0 or less to skip force merge
+     * @param indices                  the indices
+     */
+    JMElasticsearchBulkLoadSession(JMElasticsearchClient jmElasticsearchClient, int bulkActions, long bulkSizeKB,
+            int forceMergeMaxNumSegments, String... indices) {
+        this.jmESClient = jmElasticsearchClient;
+        this.indices = indices;
+        this.forceMergeMaxNumSegments = forceMergeMaxNumSegments;
+        try {
+            runPhase("apply", this::applyBulkLoadSettings);
+            this.bulkProcessor = jmElasticsearchClient.buildBulkProcessor(buildBulkProcessorListener(), bulkActions,
+                    bulkSizeKB, 1);
+        } catch (RuntimeException e) {
+            runPhase("restore", this::restoreOriginalSettings, e);
+            throw e;
+        }
+        this.openedNanos = System.nanoTime();
+    }
+
+    private void applyBulkLoadSettings() {
+        GetSettingsResponse getSettingsResponse = jmESClient.admin().indices().prepareGetSettings(indices)
+                .setNames(BULK_LOAD_SETTINGS.keySet().toArray(String[]::new)).get();
+        getSettingsResponse.getIndexToSettings().forEach(indexSettings -> {
+            Map<String, String> originalSettings = new HashMap<>();
+            for (String key : BULK_LOAD_SETTINGS.keySet())
+                originalSettings.put(key, indexSettings.value.get(key));
+            originalSettingsMap.put(indexSettings.key, originalSettings);
+        });
+        JMLog.info(log, "applyBulkLoadSettings", Arrays.asList(indices), originalSettingsMap);
+        if (!originalSettingsMap.isEmpty())
+            jmESClient.admin().indices().prepareUpdateSettings(originalSettingsMap.keySet().toArray(String[]::new))
+                    .setSettings(Settings.builder().loadFromMap(BULK_LOAD_SETTINGS)).get();
+    }
+
+    private BulkProcessor.Listener buildBulkProcessorListener() {
+        return new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+                sentDocCount.addAndGet(request.numberOfActions());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                if (response.hasFailures()) {
+                    failedDocCount
+                            .addAndGet(Arrays.stream(response.getItems()).filter(BulkItemResponse::isFailed).count());
+                    log.error("[Failure] Bulk Load - {}", response.buildFailureMessage());
+                }
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                failedDocCount.addAndGet(request.numberOfActions());
+                JMException.handleException(log, failure, "afterBulk", executionId, request.numberOfActions());
+            }
+        };
+    }
+
+    /**
+     * Send.
+     *
+     * @param index  the index
+     * @param source the source
+     */
+    public void send(String index, Map<String, Object> source) {
+        send(new IndexRequest(index).source(source));
+    }
+
+    /**
+     * Send with object mapper.
+     *
+     * @param index        the index
+     * @param sourceObject the source object
+     */
+    public void sendWithObjectMapper(String index, Object sourceObject) {
+        send(index, JMElasticsearchUtil.buildSourceByJsonMapper(sourceObject));
+    }
+
+    /**
+     * Send.
+     *
+     * @param docWriteRequest the doc write request
+     */
+    public void send(DocWriteRequest<?> docWriteRequest) {
+        bulkProcessor.add(docWriteRequest);
+    }
+
+    /**
+     * Gets sent doc count.
+     *
+     * @return the sent doc count
+     */
+    public long getSentDocCount() {
+        return sentDocCount.get();
+    }
+
+    /**
+     * Gets failed doc count.
+     *
+     * @return the failed doc count
+     */
+    public long getFailedDocCount() {
+        return failedDocCount.get();
+    }
+
+    /**
+     * Gets phase millis map.
+     *
+     * @return the phase millis map, in phase order
+     */
+    public Map<String, Long> getPhaseMillisMap() {
+        return Collections.unmodifiableMap(phaseMillisMap);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        this.closed = true;
+        phaseMillisMap.put("ingest", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedNanos));
+        RuntimeException failure = runPhase("drain", this::drainBulkProcessor, null);
+        failure = runPhase("restore", this::restoreOriginalSettings, failure);
+        failure = runPhase("refresh", () -> jmESClient.admin().indices().prepareRefresh(indices).get(), failure);
+        if (forceMergeMaxNumSegments > 0)
+            failure = runPhase("forceMerge", () -> jmESClient.admin().indices().prepareForceMerge(indices)
+                    .setMaxNumSegments(forceMergeMaxNumSegments).get(), failure);
+        JMLog.info(log, "close", Arrays.asList(indices), getSentDocCount(), getFailedDocCount(), phaseMillisMap);
+        if (Objects.nonNull(failure))
+            throw failure;
+    }
+
+    private void drainBulkProcessor() {
+        try {
+            if (!bulkProcessor.awaitClose(DRAIN_TIMEOUT_MINUTES, TimeUnit.MINUTES))
+                JMException.throwRunTimeException(
+                        "bulk load drain timed out after " + DRAIN_TIMEOUT_MINUTES + " minutes with bulks in flight");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JMException.handleExceptionAndReturnRuntimeEx(log, e, "drainBulkProcessor");
+        }
+    }
+
+    private void restoreOriginalSettings() {
+        originalSettingsMap.forEach((index, originalSettings) -> {
+            Settings.Builder builder = Settings.builder();
+            originalSettings.forEach((key, value) -> {
+                if (Objects.isNull(value))
+                    builder.putNull(key);
+                else
+                    builder.put(key, value);
+            });
+            jmESClient.admin().indices().prepareUpdateSettings(index).setSettings(builder).get();
+        });
+    }
+
+    private void runPhase(String phase, Runnable runnable) {
+        long startNanos = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            phaseMillisMap.put(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+    }
+
+    private RuntimeException runPhase(String phase, Runnable runnable, RuntimeException previousFailure) {
+        try {
+            runPhase(phase, runnable);
+            return previousFailure;
+        } catch (RuntimeException e) {
+            JMException.handleException(log, e, "runPhase", phase);
+            if (Objects.isNull(previousFailure))
+                return e;
+            previousFailure.addSuppressed(e);
+            return previousFailure;
+        }
+    }
+
+}
@@ -0,0 +1,248 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The type Jm elasticsearch bulkhead.
+ * <p>
+ * Limits the number of in-flight requests of one {@link JMElasticsearchOperationType}. A request that finds no free
+ * permit is queued without blocking the caller, which may be a scheduler, I/O or listener thread, and is dispatched in
+ * order by the request that releases a permit. A queued request is rejected with an
+ * {@link EsRejectedExecutionException} once {@code maxWaitMillis} passes (0 rejects immediately, a negative value
+ * waits without limit). When an executor is given, requests are admitted on that executor, so queued requests are
+ * dispatched there instead of on the releasing thread, and the executor's own queue and rejection policy apply.
+ */
+@Slf4j
+public class JMElasticsearchBulkhead {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final int maxConcurrentRequests;
+    @Getter
+    private final long maxWaitMillis;
+    private final Executor executor;
+    private final Semaphore permits;
+    private final Queue<Waiter> waiterQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+
+    /**
+     * Instantiates a new Jm elasticsearch bulkhead.
+     *
+     * @param name                  the name
+     * @param maxConcurrentRequests the max concurrent requests
+     * @param maxWaitMillis         the max wait millis
+     */
+    public JMElasticsearchBulkhead(String name, int maxConcurrentRequests, long maxWaitMillis) {
+        this(name, maxConcurrentRequests, maxWaitMillis, null);
+    }
+
+    /**
+     * Instantiates a new Jm elasticsearch bulkhead.
+     *
+     * @param name                  the name
+     * @param maxConcurrentRequests the max concurrent requests
+     * @param maxWaitMillis         the max wait millis
+     * @param executor              the executor, nullable
+     */
+    public JMElasticsearchBulkhead(String name, int maxConcurrentRequests, long maxWaitMillis, Executor executor) {
+        this.name = name;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxWaitMillis = maxWaitMillis;
+        this.executor = executor;
+        this.permits = new Semaphore(maxConcurrentRequests);
+    }
+
+    /**
+     * Execute.
+     *
+     * @param <R>              the type parameter
+     * @param action           the action
+     * @param responseListener the response listener
+     */
+    public <R> void execute(Consumer<ActionListener<R>> action, ActionListener<R> responseListener) {
+        if (Objects.isNull(executor)) {
+            admit(action, responseListener);
+            return;
+        }
+        try {
+            executor.execute(() -> admit(action, responseListener));
+        } catch (RejectedExecutionException e) {
+            reject(responseListener);
+        }
+    }
+
+    private <R> void admit(Consumer<ActionListener<R>> action, ActionListener<R> responseListener) {
+        // queued requests go first, so a new one only takes a free permit when none is waiting
+        if (waiterQueue.isEmpty() && permits.tryAcquire()) {
+            dispatch(action, responseListener);
+            return;
+        }
+        if (maxWaitMillis == 0) {
+            reject(responseListener);
+            return;
+        }
+        Waiter waiter = new Waiter(() -> dispatch(action, responseListener), () -> reject(responseListener));
+        waitingCount.incrementAndGet();
+        waiterQueue.add(waiter);
+        if (maxWaitMillis > 0)
+            CompletableFuture.delayedExecutor(maxWaitMillis, TimeUnit.MILLISECONDS).execute(waiter::expire);
+        drainWaiters();
+    }
+
+    private void drainWaiters() {
+        while (!waiterQueue.isEmpty() && permits.tryAcquire()) {
+            Waiter waiter = waiterQueue.poll();
+            if (Objects.isNull(waiter) || !waiter.claim()) {
+                permits.release();
+                continue;
+            }
+            waitingCount.decrementAndGet();
+            waiter.dispatch.run();
+        }
+    }
+
+    private <R> void dispatch(Consumer<ActionListener<R>> action, ActionListener<R> responseListener) {
+        try {
+            action.accept(buildReleasingListener(responseListener));
+        } catch (Exception e) {
+            release();
+            failedCount.increment();
+            responseListener.onFailure(e);
+        }
+    }
+
+    private void release() {
+        permits.release();
+        drainWaiters();
+    }
+
+    private <R> void reject(ActionListener<R> responseListener) {
+        rejectedCount.increment();
+        JMLog.debug(log, "reject", name, maxConcurrentRequests, maxWaitMillis);
+        responseListener.onFailure(new EsRejectedExecutionException(
+                "bulkhead [" + name + "] rejected, maxConcurrentRequests = " + maxConcurrentRequests));
+    }
+
+    private <R> ActionListener<R> buildReleasingListener(ActionListener<R> responseListener) {
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(R response) {
+                release();
+                completedCount.increment();
+                responseListener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                release();
+                failedCount.increment();
+                responseListener.onFailure(e);
+            }
+        };
+    }
+
+    /**
+     * Gets active count.
+     *
+     * @return the active count
+     */
+    public int getActiveCount() {
+        return maxConcurrentRequests - permits.availablePermits();
+    }
+
+    /**
+     * Gets waiting count.
+     *
+     * @return the waiting count
+     */
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    /**
+     * Gets rejected count.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Gets completed count.
+     *
+     * @return the completed count
+     */
+    public long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * Gets failed count.
+     *
+     * @return the failed count
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    /**
+     * Gets stats.
+     *
+     * @return the stats
+     */
+    public Map<String, Number> getStats() {
+        return Map.of("maxConcurrentRequests", maxConcurrentRequests, "active", getActiveCount(), "waiting",
+                getWaitingCount(), "rejected", getRejectedCount(), "completed", getCompletedCount(), "failed",
+                getFailedCount());
+    }
+
+    /**
+     * A queued request, either dispatched with a released permit or rejected when its wait expires, whichever claims
+     * it first. An expired waiter stays in the queue until a drain polls and skips it.
+     */
+    private class Waiter {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final Runnable dispatch;
+        private final Runnable rejection;
+
+        private Waiter(Runnable dispatch, Runnable rejection) {
+            this.dispatch = dispatch;
+            this.rejection = rejection;
+        }
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private void expire() {
+            if (claim()) {
+                waitingCount.decrementAndGet();
+                rejection.run();
+            }
+        }
+    }
+
+}
@@ -7,27 +7,38 @@ import kr.jm.utils.helper.JMLog;
 import lombok.Getter;
 import lombok.experimental.Delegate;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequestBuilder;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequestBuilder;
 import org.elasticsearch.action.admin.indices.stats.IndexStats;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsRequestBuilder;
-import org.elasticsearch.action.get.GetRequestBuilder;
-import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequestBuilder;
 import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.metadata.MappingMetadata;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.Settings.Builder;
-import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.node.Node;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
 
-import java.net.InetAddress;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import static java.util.stream.Collectors.*;
 
@@ -43,6 +54,7 @@ public class JMElasticsearchClient extends PreBuiltTransportClient {
     private static final String CLUSTER_NAME = "cluster.name";
     private static final String CLIENT_TRANSPORT_SNIFF =
             "client.transport.sniff";
+    private static final String TRANSPORT_COMPRESS = "transport.compress";
 
     @Getter
     private final Settings settings;
@@ -54,6 +66,20 @@ public class JMElasticsearchClient extends PreBuiltTransportClient {
     private final JMElasticsearchSearchAndCount jmESSearchAndCount;
     @Delegate
     private final JMElasticsearchDelete jmESDelete;
+    @Delegate
+    private final JMElasticsearchGet jmESGet;
+    @Delegate
+    private final JMElasticsearchReindex jmESReindex;
+    @Delegate
+    private final JMElasticsearchCompositeAggregation jmESCompositeAggregation;
+    private final Map<JMElasticsearchOperationType, JMElasticsearchBulkhead> bulkheadMap = new ConcurrentHashMap<>();
+    @Getter
+    private final JMElasticsearchWriteRateLimiter writeRateLimiter = new JMElasticsearchWriteRateLimiter();
+    @Getter
+    private final JMElasticsearchPayloadAccounting payloadAccounting = new JMElasticsearchPayloadAccounting();
+    private final Client localClient;
+    private final JMElasticsearchBackend backend;
+    private final JMElasticsearchTransportAddressManager transportAddressManager;
 
     /**
      * Instantiates a new Jm elasticsearch client.
@@ -133,23 +159,76 @@ public class JMElasticsearchClient extends PreBuiltTransportClient {
      * @param settings             the settings
      */
     public JMElasticsearchClient(String elasticsearchConnect, Settings settings) {
+        this(elasticsearchConnect, settings, null, null);
+    }
+
+    /**
+     * Instantiates a new Jm elasticsearch client on a backend alone, without transport addresses, so actions the
+     * backend does not support fail with no node available.
+     *
+     * @param backend the backend, closed with this client
+     */
+    public JMElasticsearchClient(JMElasticsearchBackend backend) {
+        this(null, getSettingsBuilder(OS.getHostname(), false, null).build(), backend);
+    }
+
+    /**
+     * Instantiates a new Jm elasticsearch client sending the actions the backend supports to it and the others over
+     * the transport connection.
+     *
+     * @param elasticsearchConnect the elasticsearch connect, null for none
+     * @param settings             the settings
+     * @param backend              the backend, closed with this client
+     */
+    public JMElasticsearchClient(String elasticsearchConnect, Settings settings, JMElasticsearchBackend backend) {
+        this(elasticsearchConnect, settings, null, backend);
+    }
+
+    /**
+     * Instantiates a new Jm elasticsearch client on top of an in-process node's own client, so requests skip the
+     * transport port and, for actions handled on that node, serialization. Rate limits and bulkheads still apply, and
+     * closing this client leaves the node running.
+     *
+     * @param node the node
+     */
+    public JMElasticsearchClient(Node node) {
+        this(null, getSettingsBuilder(OS.getHostname(), false,
+                ClusterName.CLUSTER_NAME_SETTING.get(node.settings()).value()).build(), node.client(), null);
+    }
+
+    private JMElasticsearchClient(String elasticsearchConnect, Settings settings, Client localClient,
+            JMElasticsearchBackend backend) {
         super(settings);
         this.settings = settings;
-        try {
-            for (String ipPort : elasticsearchConnect.split(",")) {
-                String[] separatedIpPort = ipPort.split(":");
-                addTransportAddress(new TransportAddress(InetAddress.getByName(separatedIpPort[0]),
-                        Integer.parseInt(separatedIpPort[1])));
-            }
-        } catch (Exception e) {
-            JMException
-                    .handleExceptionAndThrowRuntimeEx(log, e, "JMElasticsearchClient", elasticsearchConnect, settings);
-        }
-        JMLog.info(log, "initElasticsearchClient", elasticsearchConnect, settings);
+        this.localClient = localClient;
+        this.backend = backend;
+        this.transportAddressManager = Objects.isNull(elasticsearchConnect) ? null :
+                new JMElasticsearchTransportAddressManager(this, elasticsearchConnect,
+                        JMElasticsearchTransportAddressManager.DEFAULT_RESOLVE_TIMEOUT_MILLIS);
+        JMLog.info(log, "initElasticsearchClient", elasticsearchConnect, settings, Objects.nonNull(localClient),
+                Objects.isNull(backend) ? null : backend.getClass().getSimpleName());
         this.jmESBulk = new JMElasticsearchBulk(this);
         this.jmESIndex = new JMElasticsearchIndex(this);
         this.jmESSearchAndCount = new JMElasticsearchSearchAndCount(this);
         this.jmESDelete = new JMElasticsearchDelete(this);
+        this.jmESGet = new JMElasticsearchGet(this);
+        this.jmESReindex = new JMElasticsearchReindex(this);
+        this.jmESCompositeAggregation = new JMElasticsearchCompositeAggregation(jmESSearchAndCount, null);
+    }
+
+    /**
+     * Gets settings builder.
+     *
+     * @param nodeName             the node name
+     * @param clientTransportSniff the client transport sniff
+     * @param clusterName          the cluster name
+     * @param transportCompress    the transport compress, compressing requests this client sends
+     * @return the settings builder
+     */
+    public static Builder getSettingsBuilder(String nodeName, boolean clientTransportSniff, String clusterName,
+            boolean transportCompress) {
+        return getSettingsBuilder(nodeName, clientTransportSniff, clusterName)
+                .put(TRANSPORT_COMPRESS, transportCompress);
     }
 
     /**
@@ -169,6 +248,262 @@ public class JMElasticsearchClient extends PreBuiltTransportClient {
         return builder;
     }
 
+    /**
+     * Sets read hedging for searches, counts and gets.
+     *
+     * @param latencyPercentile the latency percentile
+     * @param maxHedgeRatio     the max hedge ratio
+     */
+    public void setReadHedging(double latencyPercentile, double maxHedgeRatio) {
+        setSearchHedging(latencyPercentile, maxHedgeRatio);
+        setGetHedging(latencyPercentile, maxHedgeRatio);
+    }
+
+    /**
+     * Sets bulkhead.
+     *
+     * @param operationType         the operation type
+     * @param maxConcurrentRequests the max concurrent requests
+     * @param maxWaitMillis         the max wait millis, 0 rejects immediately and a negative value waits without limit
+     */
+    public void setBulkhead(JMElasticsearchOperationType operationType, int maxConcurrentRequests,
+            long maxWaitMillis) {
+        setBulkhead(operationType, maxConcurrentRequests, maxWaitMillis, null);
+    }
+
+    /**
+     * Sets bulkhead.
+     *
+     * @param operationType         the operation type
+     * @param maxConcurrentRequests the max concurrent requests
+     * @param maxWaitMillis         the max wait millis, 0 rejects immediately and a negative value waits without limit
+     * @param executor              the executor, nullable
+     */
+    public void setBulkhead(JMElasticsearchOperationType operationType, int maxConcurrentRequests,
+            long maxWaitMillis, Executor executor) {
+        bulkheadMap.put(operationType,
+                new JMElasticsearchBulkhead(operationType.name(), maxConcurrentRequests, maxWaitMillis, executor));
+    }
+
+    /**
+     * Gets bulkhead.
+     *
+     * @param operationType the operation type
+     * @return the bulkhead
+     */
+    public Optional<JMElasticsearchBulkhead> getBulkhead(JMElasticsearchOperationType operationType) {
+        return Optional.ofNullable(bulkheadMap.get(operationType));
+    }
+
+    /**
+     * Remove bulkhead.
+     *
+     * @param operationType the operation type
+     */
+    public void removeBulkhead(JMElasticsearchOperationType operationType) {
+        bulkheadMap.remove(operationType);
+    }
+
+    /**
+     * Sets write rate limit for all indices.
+     *
+     * @param docsPerSecond  the docs per second, 0 for unlimited
+     * @param bytesPerSecond the bytes per second, 0 for unlimited
+     */
+    public void setWriteRateLimit(double docsPerSecond, double bytesPerSecond) {
+        writeRateLimiter.setGlobalLimit(docsPerSecond, bytesPerSecond);
+    }
+
+    /**
+     * Sets write rate limit for an index.
+     *
+     * @param index          the index
+     * @param docsPerSecond  the docs per second, 0 for unlimited
+     * @param bytesPerSecond the bytes per second, 0 for unlimited
+     */
+    public void setWriteRateLimit(String index, double docsPerSecond, double bytesPerSecond) {
+        writeRateLimiter.setIndexLimit(index, docsPerSecond, bytesPerSecond);
+    }
+
+    /**
+     * Start bulk load session.
+     *
+     * @param indices the indices
+     * @return the jm elasticsearch bulk load session
+     */
+    public JMElasticsearchBulkLoadSession startBulkLoadSession(String... indices) {
+        return startBulkLoadSession(1000, 5 * 1024, 0, indices);
+    }
+
+    /**
+     * Start bulk load session.
+     *
+     * @param bulkActions              the bulk actions
+     * @param bulkSizeKB               the bulk size kb
+     * @param forceMergeMaxNumSegments the force merge max num segments, 0 or less to skip force merge
+     * @param indices                  the indices
+     * @return the jm elasticsearch bulk load session
+     */
+    public JMElasticsearchBulkLoadSession startBulkLoadSession(int bulkActions, long bulkSizeKB,
+            int forceMergeMaxNumSegments, String... indices) {
+        return new JMElasticsearchBulkLoadSession(this, bulkActions, bulkSizeKB, forceMergeMaxNumSegments, indices);
+    }
+
+    /**
+     * Build time routing writer, in UTC, writing through the bulk processor.
+     *
+     * @param indexPattern   the index pattern, a date time formatter pattern such as 'logs-'yyyy.MM.dd
+     * @param bucketUnit     the bucket unit, one of hours, days, months or years
+     * @param timestampField the timestamp field
+     * @return the jm elasticsearch time routing writer
+     */
+    public JMElasticsearchTimeRoutingWriter buildTimeRoutingWriter(String indexPattern, ChronoUnit bucketUnit,
+            String timestampField) {
+        return new JMElasticsearchTimeRoutingWriter(this, indexPattern, bucketUnit, ZoneOffset.UTC, timestampField);
+    }
+
+    /**
+     * Build coalescing buffer, keeping the last write per document in front of the bulk processor.
+     *
+     * @param flushIntervalMillis the flush interval millis
+     * @param maxPendingDocs      the max pending docs, flushing once reached
+     * @return the jm elasticsearch coalescing buffer
+     */
+    public JMElasticsearchCoalescingBuffer buildCoalescingBuffer(long flushIntervalMillis, int maxPendingDocs) {
+        return new JMElasticsearchCoalescingBuffer(this, flushIntervalMillis, maxPendingDocs);
+    }
+
+    /**
+     * Build counter writer, summing increments in memory and flushing them as scripted upserts.
+     *
+     * @param index               the index
+     * @param flushIntervalMillis the flush interval millis
+     * @return the jm elasticsearch counter writer
+     */
+    public JMElasticsearchCounterWriter buildCounterWriter(String index, long flushIntervalMillis) {
+        return new JMElasticsearchCounterWriter(this, index, flushIntervalMillis);
+    }
+
+    /**
+     * Start alias migration.
+     *
+     * @param alias          the alias, or the name of the concrete index to replace with an alias
+     * @param timestampField the timestamp field set on every write, used to catch up
+     * @return the jm elasticsearch alias migration
+     */
+    public JMElasticsearchAliasMigration startAliasMigration(String alias, String timestampField) {
+        return new JMElasticsearchAliasMigration(this, alias, timestampField);
+    }
+
+    @Override
+    protected <Request extends ActionRequest, Response extends ActionResponse> void doExecute(
+            ActionType<Response> action, Request request, ActionListener<Response> listener) {
+        JMElasticsearchOperationType operationType = JMElasticsearchOperationType.of(action.name());
+        long rateLimitWaitNanos = operationType == JMElasticsearchOperationType.BULK &&
+                writeRateLimiter.isEnabled() ? writeRateLimiter.reserve(request) : 0;
+        if (rateLimitWaitNanos <= 0) {
+            dispatch(operationType, action, request, listener);
+            return;
+        }
+        try {
+            threadPool().schedule(new AbstractRunnable() {
+                @Override
+                protected void doRun() {
+                    dispatch(operationType, action, request, listener);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    listener.onFailure(e);
+                }
+            }, TimeValue.timeValueNanos(rateLimitWaitNanos), ThreadPool.Names.GENERIC);
+        } catch (Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    private <Request extends ActionRequest, Response extends ActionResponse> void dispatch(
+            JMElasticsearchOperationType operationType, ActionType<Response> action, Request request,
+            ActionListener<Response> listener) {
+        ActionListener<Response> responseListener =
+                payloadAccounting.isEnabled() ? payloadAccounting.account(action.name(), request, listener) : listener;
+        JMElasticsearchBulkhead bulkhead = bulkheadMap.isEmpty() ? null : bulkheadMap.get(operationType);
+        if (Objects.isNull(bulkhead))
+            executeOnClient(action, request, responseListener);
+        else
+            bulkhead.execute(bulkheadListener -> executeOnClient(action, request, bulkheadListener),
+                    responseListener);
+    }
+
+    private <Request extends ActionRequest, Response extends ActionResponse> void executeOnClient(
+            ActionType<Response> action, Request request, ActionListener<Response> listener) {
+        if (Objects.nonNull(backend) && backend.supports(action))
+            backend.execute(action, request, listener);
+        else if (Objects.isNull(localClient))
+            super.doExecute(action, request, listener);
+        else
+            localClient.execute(action, request, listener);
+    }
+
+    /**
+     * Gets transport address manager.
+     *
+     * @return the transport address manager, empty when built on an in-process node
+     */
+    public Optional<JMElasticsearchTransportAddressManager> getTransportAddressManager() {
+        return Optional.ofNullable(transportAddressManager);
+    }
+
+    /**
+     * Start node health probing, taking failing listed nodes, and slow ones once a max latency ratio is set on the
+     * transport address manager, out of rotation until they recover.
+     *
+     * @param probeIntervalMillis the probe interval millis
+     */
+    public void startNodeHealthProbing(long probeIntervalMillis) {
+        getTransportAddressManager().orElseThrow(() -> JMException.handleExceptionAndReturnRuntimeEx(log,
+                new IllegalStateException("no transport addresses to probe"), "startNodeHealthProbing",
+                probeIntervalMillis)).startHealthProbing(probeIntervalMillis);
+    }
+
+    /**
+     * Gets backend.
+     *
+     * @return the backend, present when built on one
+     */
+    public Optional<JMElasticsearchBackend> getBackend() {
+        return Optional.ofNullable(backend);
+    }
+
+    /**
+     * Gets local client.
+     *
+     * @return the local client, present when built on an in-process node
+     */
+    public Optional<Client> getLocalClient() {
+        return Optional.ofNullable(localClient);
+    }
+
+    @Override
+    public void close() {
+        getTransportAddressManager().ifPresent(JMElasticsearchTransportAddressManager::stopHealthProbing);
+        closeMultiSearchBatching();
+        closeMultiGetBatching();
+        closeSearchHedging();
+        closeGetHedging();
+        closeCompositePartitionExecutor();
+        super.close();
+        getBackend().ifPresent(this::closeBackend);
+    }
+
+    private void closeBackend(JMElasticsearchBackend backend) {
+        try {
+            backend.close();
+        } catch (IOException e) {
+            JMException.handleException(log, e, "closeBackend", backend);
+        }
+    }
+
     /**
      * Is exists boolean.
      *
@@ -267,16 +602,6 @@ public class JMElasticsearchClient extends PreBuiltTransportClient {
         return getAllIndices().stream().filter(index -> index.contains(containedString)).collect(toList());
     }
 
-    /**
-     * Gets query.
-     *
-     * @param getRequestBuilder the get request builder
-     * @return the query
-     */
-    public GetResponse getQuery(GetRequestBuilder getRequestBuilder) {
-        return JMElasticsearchUtil.logRequestQueryAndReturn("getQuery", getRequestBuilder, getRequestBuilder.execute());
-    }
-
     /**
      * Update query update response.
      *
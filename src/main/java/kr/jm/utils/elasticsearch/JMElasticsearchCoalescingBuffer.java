@@ -0,0 +1,226 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The type Jm elasticsearch coalescing buffer.
+ * <p>
+ * Holds writes by {@code (index, id)} in front of the client's bulk processor and keeps only the last one per document
+ * until the flush interval passes or the pending documents reach the limit. An index or delete replaces whatever is
+ * pending for its document; a partial update without a script is merged into a pending partial update, or into the
+ * source of a pending index request, and an upserting update after a pending delete becomes an index of its upsert
+ * document. Writes that cannot be combined, such as scripted updates, versioned or {@code create} requests, updates
+ * after a pending {@code create} and updates after a non-upserting one, first send what is pending for the document
+ * so the order on the cluster is kept. Writes without an id are sent right away. Only the latest write per document
+ * reaches the cluster, so the responses and failures of the replaced ones are never reported. Merged writes are sent
+ * as new requests, so the requests passed in are never modified.
+ */
+@Slf4j
+public class JMElasticsearchCoalescingBuffer implements AutoCloseable {
+
+    private final JMElasticsearchClient jmESClient;
+    @Getter
+    private final int maxPendingDocs;
+    private final Scheduler.Cancellable flusher;
+    private Map<Map.Entry<String, String>, DocWriteRequest<?>> pendingRequestMap = new LinkedHashMap<>();
+    private final LongAdder receivedCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder sentCount = new LongAdder();
+
+    /**
+     * Instantiates a new Jm elasticsearch coalescing buffer.
+     *
+     * @param jmElasticsearchClient the jm elasticsearch client
+     * @param flushIntervalMillis   the flush interval millis
+     * @param maxPendingDocs        the max pending docs, flushing once reached
+     */
+    public JMElasticsearchCoalescingBuffer(JMElasticsearchClient jmElasticsearchClient, long flushIntervalMillis,
+            int maxPendingDocs) {
+        this.jmESClient = jmElasticsearchClient;
+        this.maxPendingDocs = maxPendingDocs;
+        this.flusher = jmElasticsearchClient.threadPool().scheduleWithFixedDelay(this::flush,
+                TimeValue.timeValueMillis(flushIntervalMillis), ThreadPool.Names.GENERIC);
+        JMLog.info(log, "JMElasticsearchCoalescingBuffer", flushIntervalMillis, maxPendingDocs);
+    }
+
+    /**
+     * Add.
+     *
+     * @param docWriteRequest the index, update or delete request
+     */
+    public synchronized void add(DocWriteRequest<?> docWriteRequest) {
+        receivedCount.increment();
+        if (Objects.isNull(docWriteRequest.id())) {
+            send(docWriteRequest);
+            return;
+        }
+        Map.Entry<String, String> docKey = Map.entry(docWriteRequest.index(), docWriteRequest.id());
+        DocWriteRequest<?> pendingRequest = pendingRequestMap.get(docKey);
+        if (Objects.isNull(pendingRequest))
+            pendingRequestMap.put(docKey, docWriteRequest);
+        else {
+            DocWriteRequest<?> coalescedRequest = coalesce(pendingRequest, docWriteRequest);
+            if (Objects.isNull(coalescedRequest)) {
+                send(pendingRequest);
+                pendingRequestMap.put(docKey, docWriteRequest);
+            } else {
+                coalescedCount.increment();
+                pendingRequestMap.put(docKey, coalescedRequest);
+            }
+        }
+        if (pendingRequestMap.size() >= maxPendingDocs)
+            flush();
+    }
+
+    /**
+     * Add all.
+     *
+     * @param docWriteRequests the doc write requests
+     */
+    public synchronized void addAll(Iterable<? extends DocWriteRequest<?>> docWriteRequests) {
+        docWriteRequests.forEach(this::add);
+    }
+
+    private DocWriteRequest<?> coalesce(DocWriteRequest<?> pendingRequest, DocWriteRequest<?> nextRequest) {
+        if (isConditional(pendingRequest) || isConditional(nextRequest) ||
+                !Objects.equals(pendingRequest.routing(), nextRequest.routing()))
+            return null;
+        if (nextRequest instanceof DeleteRequest)
+            return nextRequest;
+        if (nextRequest instanceof IndexRequest)
+            return nextRequest.opType() == DocWriteRequest.OpType.CREATE ? null : nextRequest;
+        UpdateRequest updateRequest = (UpdateRequest) nextRequest;
+        if (Objects.nonNull(updateRequest.script()) || Objects.isNull(updateRequest.doc()))
+            return null;
+        if (pendingRequest instanceof IndexRequest)
+            return coalesce((IndexRequest) pendingRequest, updateRequest);
+        if (pendingRequest instanceof DeleteRequest)
+            return isUpserting(updateRequest) ? new IndexRequest(updateRequest.index()).id(updateRequest.id())
+                    .routing(updateRequest.routing()).source(getUpsertSource(updateRequest)) : null;
+        return coalesce((UpdateRequest) pendingRequest, updateRequest);
+    }
+
+    private IndexRequest coalesce(IndexRequest pendingRequest, UpdateRequest nextRequest) {
+        if (Objects.nonNull(pendingRequest.getPipeline()) || pendingRequest.opType() == DocWriteRequest.OpType.CREATE)
+            return null;
+        return new IndexRequest(pendingRequest.index()).id(pendingRequest.id()).routing(pendingRequest.routing())
+                .setRequireAlias(pendingRequest.isRequireAlias())
+                .source(merge(pendingRequest.sourceAsMap(), nextRequest.doc().sourceAsMap()));
+    }
+
+    private UpdateRequest coalesce(UpdateRequest pendingRequest, UpdateRequest nextRequest) {
+        if (Objects.nonNull(pendingRequest.script()) || Objects.isNull(pendingRequest.doc()) ||
+                isUpserting(nextRequest) && !isUpserting(pendingRequest))
+            return null;
+        Map<String, Object> nextDoc = nextRequest.doc().sourceAsMap();
+        UpdateRequest coalescedRequest = new UpdateRequest(pendingRequest.index(), pendingRequest.id())
+                .routing(pendingRequest.routing()).setRequireAlias(pendingRequest.isRequireAlias())
+                .retryOnConflict(Math.max(pendingRequest.retryOnConflict(), nextRequest.retryOnConflict()))
+                .detectNoop(pendingRequest.detectNoop()).fetchSource(pendingRequest.fetchSource())
+                .doc(merge(pendingRequest.doc().sourceAsMap(), nextDoc)).docAsUpsert(pendingRequest.docAsUpsert());
+        if (!pendingRequest.docAsUpsert() && Objects.nonNull(pendingRequest.upsertRequest()))
+            coalescedRequest.upsert(merge(pendingRequest.upsertRequest().sourceAsMap(), nextDoc));
+        return coalescedRequest;
+    }
+
+    private boolean isConditional(DocWriteRequest<?> docWriteRequest) {
+        return docWriteRequest.version() != Versions.MATCH_ANY ||
+                docWriteRequest.ifSeqNo() != SequenceNumbers.UNASSIGNED_SEQ_NO;
+    }
+
+    private boolean isUpserting(UpdateRequest updateRequest) {
+        return updateRequest.docAsUpsert() || Objects.nonNull(updateRequest.upsertRequest());
+    }
+
+    private Map<String, Object> getUpsertSource(UpdateRequest updateRequest) {
+        return (updateRequest.docAsUpsert() ? updateRequest.doc() : updateRequest.upsertRequest()).sourceAsMap();
+    }
+
+    private Map<String, Object> merge(Map<String, Object> source, Map<String, Object> changes) {
+        Map<String, Object> mergedSource = new LinkedHashMap<>(source);
+        XContentHelper.update(mergedSource, changes, false);
+        return mergedSource;
+    }
+
+    private void send(DocWriteRequest<?> docWriteRequest) {
+        sentCount.increment();
+        jmESClient.sendWithBulkProcessor(docWriteRequest);
+    }
+
+    /**
+     * Flush the pending writes to the bulk processor.
+     */
+    public synchronized void flush() {
+        if (pendingRequestMap.isEmpty())
+            return;
+        Map<Map.Entry<String, String>, DocWriteRequest<?>> flushingRequestMap = this.pendingRequestMap;
+        this.pendingRequestMap = new LinkedHashMap<>();
+        log.debug("flush - pending = {}, coalesced = {}", flushingRequestMap.size(), getCoalescedCount());
+        flushingRequestMap.values().forEach(this::send);
+    }
+
+    /**
+     * Gets pending count.
+     *
+     * @return the pending count
+     */
+    public synchronized int getPendingCount() {
+        return pendingRequestMap.size();
+    }
+
+    /**
+     * Gets received count.
+     *
+     * @return the received count
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * Gets coalesced count.
+     *
+     * @return the count of writes folded into a pending one
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * Gets sent count.
+     *
+     * @return the count of writes sent to the bulk processor
+     */
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    /**
+     * Close, flushing the pending writes and the bulk processor.
+     */
+    @Override
+    public void close() {
+        flusher.cancel();
+        flush();
+        jmESClient.flushBulkProcessor();
+        JMLog.info(log, "close", getReceivedCount(), getCoalescedCount(), getSentCount());
+    }
+
+}
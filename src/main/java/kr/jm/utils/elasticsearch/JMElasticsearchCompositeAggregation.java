@@ -0,0 +1,291 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.JMArrays;
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The type Jm elasticsearch composite aggregation.
+ * <p>
+ * Pages through a composite aggregation with its {@code after_key} and streams the buckets, so only the page being
+ * consumed is held in memory however many keys there are. Pages are fetched lazily as the stream is consumed. With
+ * partitions, every partition query pages on a thread of the partition executor and at most one page per partition
+ * waits in a bounded queue until the stream takes it; closing the stream stops the partitions. Paging blocks on each
+ * search, so partitions run on an executor of their own, a caller-supplied one or a dedicated pool of daemon threads
+ * bounded to the available processors, never on the transport client's thread pool; partitions beyond the pool size
+ * wait for a free thread.
+ */
+@Slf4j
+public class JMElasticsearchCompositeAggregation {
+
+    /**
+     * The constant DEFAULT_PAGE_SIZE.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final String COMPOSITE_AGGREGATION_NAME = "jm-composite";
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final Object END_OF_PARTITION = new Object();
+    private static final int DEFAULT_PARTITION_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private final JMElasticsearchSearchAndCount jmESSearchAndCount;
+    private volatile Executor partitionExecutor;
+    private ExecutorService defaultPartitionExecutor;
+
+    /**
+     * Instantiates a new Jm elasticsearch composite aggregation.
+     *
+     * @param jmElasticsearchSearchAndCount the jm elasticsearch search and count
+     * @param partitionExecutor             the executor partitions are paged on, null for the dedicated pool
+     */
+    public JMElasticsearchCompositeAggregation(JMElasticsearchSearchAndCount jmElasticsearchSearchAndCount,
+            Executor partitionExecutor) {
+        this.jmESSearchAndCount = jmElasticsearchSearchAndCount;
+        this.partitionExecutor = partitionExecutor;
+    }
+
+    /**
+     * Sets composite partition executor.
+     *
+     * @param partitionExecutor the executor partitions are paged on, null for the dedicated pool
+     */
+    public void setCompositePartitionExecutor(Executor partitionExecutor) {
+        this.partitionExecutor = partitionExecutor;
+    }
+
+    /**
+     * Close composite partition executor, shutting down the dedicated pool if it was started.
+     */
+    public synchronized void closeCompositePartitionExecutor() {
+        Optional.ofNullable(defaultPartitionExecutor).ifPresent(ExecutorService::shutdownNow);
+        this.defaultPartitionExecutor = null;
+    }
+
+    private Executor getPartitionExecutor() {
+        Executor partitionExecutor = this.partitionExecutor;
+        return Objects.nonNull(partitionExecutor) ? partitionExecutor : getDefaultPartitionExecutor();
+    }
+
+    private synchronized ExecutorService getDefaultPartitionExecutor() {
+        if (Objects.isNull(defaultPartitionExecutor)) {
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(DEFAULT_PARTITION_THREAD_COUNT,
+                    DEFAULT_PARTITION_THREAD_COUNT, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    EsExecutors.daemonThreadFactory("compositePartition"));
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            this.defaultPartitionExecutor = threadPoolExecutor;
+        }
+        return defaultPartitionExecutor;
+    }
+
+    /**
+     * Stream composite aggregation stream with a terms source per field, named after the field.
+     *
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @param fields             the fields
+     * @return the bucket stream
+     */
+    public Stream<CompositeAggregation.Bucket> streamCompositeAggregation(String[] indices,
+            QueryBuilder filterQueryBuilder, String... fields) {
+        return streamCompositeAggregation(indices, filterQueryBuilder, buildTermsSourceList(fields),
+                DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Stream composite aggregation stream.
+     *
+     * @param indices                the indices
+     * @param filterQueryBuilder     the filter query builder
+     * @param sourceList             the composite value sources
+     * @param pageSize               the bucket count per page
+     * @param subAggregationBuilders the sub aggregation builders
+     * @return the bucket stream
+     */
+    public Stream<CompositeAggregation.Bucket> streamCompositeAggregation(String[] indices,
+            QueryBuilder filterQueryBuilder, List<CompositeValuesSourceBuilder<?>> sourceList, int pageSize,
+            AggregationBuilder... subAggregationBuilders) {
+        CompositePager compositePager =
+                new CompositePager(indices, filterQueryBuilder, sourceList, pageSize, subAggregationBuilders);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<List<? extends CompositeAggregation.Bucket>>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super List<? extends CompositeAggregation.Bucket>> action) {
+                return compositePager.nextPage().map(bucketList -> {
+                    action.accept(bucketList);
+                    return true;
+                }).orElse(false);
+            }
+        }, false).flatMap(List::stream);
+    }
+
+    /**
+     * Stream composite aggregation in partitions stream. Buckets of different partitions are interleaved, and keys
+     * repeat across partitions unless the partition queries split on the first source field, such as range queries
+     * over it.
+     *
+     * @param indices                the indices
+     * @param partitionQueryBuilders the partition query builders, one paging thread each
+     * @param sourceList             the composite value sources
+     * @param pageSize               the bucket count per page
+     * @param subAggregationBuilders the sub aggregation builders
+     * @return the bucket stream, to be closed when not consumed to the end
+     */
+    public Stream<CompositeAggregation.Bucket> streamCompositeAggregationInPartitions(String[] indices,
+            List<QueryBuilder> partitionQueryBuilders, List<CompositeValuesSourceBuilder<?>> sourceList, int pageSize,
+            AggregationBuilder... subAggregationBuilders) {
+        PartitionedPageIterator partitionedPageIterator =
+                new PartitionedPageIterator(partitionQueryBuilders.size());
+        Executor partitionExecutor = getPartitionExecutor();
+        for (QueryBuilder partitionQueryBuilder : partitionQueryBuilders)
+            partitionExecutor.execute(() -> partitionedPageIterator.runPartition(
+                    new CompositePager(indices, partitionQueryBuilder, sourceList, pageSize, subAggregationBuilders)));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(partitionedPageIterator,
+                Spliterator.NONNULL), false).onClose(partitionedPageIterator::close).flatMap(List::stream);
+    }
+
+    private List<CompositeValuesSourceBuilder<?>> buildTermsSourceList(String... fields) {
+        return Arrays.stream(fields).map(field -> new TermsValuesSourceBuilder(field).field(field))
+                .collect(Collectors.toList());
+    }
+
+    private class CompositePager {
+        private final String[] indices;
+        private final QueryBuilder filterQueryBuilder;
+        private final List<CompositeValuesSourceBuilder<?>> sourceList;
+        private final int pageSize;
+        private final AggregationBuilder[] subAggregationBuilders;
+        private Map<String, Object> afterKey;
+        private boolean lastPage;
+
+        private CompositePager(String[] indices, QueryBuilder filterQueryBuilder,
+                List<CompositeValuesSourceBuilder<?>> sourceList, int pageSize,
+                AggregationBuilder[] subAggregationBuilders) {
+            this.indices = indices;
+            this.filterQueryBuilder = filterQueryBuilder;
+            this.sourceList = sourceList;
+            this.pageSize = pageSize;
+            this.subAggregationBuilders = subAggregationBuilders;
+        }
+
+        private Optional<List<? extends CompositeAggregation.Bucket>> nextPage() {
+            if (lastPage)
+                return Optional.empty();
+            CompositeAggregationBuilder compositeAggregationBuilder =
+                    new CompositeAggregationBuilder(COMPOSITE_AGGREGATION_NAME, sourceList).size(pageSize);
+            Arrays.stream(subAggregationBuilders).forEach(compositeAggregationBuilder::subAggregation);
+            if (Objects.nonNull(afterKey))
+                compositeAggregationBuilder.aggregateAfter(afterKey);
+            SearchRequestBuilder searchRequestBuilder = jmESSearchAndCount
+                    .getSearchRequestBuilderWithMatchAll(false, indices, filterQueryBuilder,
+                            JMArrays.buildArray(compositeAggregationBuilder))
+                    .setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0);
+            CompositeAggregation compositeAggregation = jmESSearchAndCount.searchQuery(searchRequestBuilder)
+                    .getAggregations().get(COMPOSITE_AGGREGATION_NAME);
+            List<? extends CompositeAggregation.Bucket> bucketList = compositeAggregation.getBuckets();
+            this.afterKey = compositeAggregation.afterKey();
+            this.lastPage = Objects.isNull(afterKey) || bucketList.size() < pageSize;
+            return bucketList.isEmpty() ? Optional.empty() : Optional.of(bucketList);
+        }
+    }
+
+    private static class PartitionedPageIterator implements Iterator<List<? extends CompositeAggregation.Bucket>> {
+        private final BlockingQueue<Object> pageQueue;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private int runningPartitionCount;
+        private List<? extends CompositeAggregation.Bucket> nextBucketList;
+
+        private PartitionedPageIterator(int partitionCount) {
+            this.pageQueue = new ArrayBlockingQueue<>(Math.max(1, partitionCount));
+            this.runningPartitionCount = partitionCount;
+        }
+
+        private void runPartition(CompositePager compositePager) {
+            try {
+                Optional<List<? extends CompositeAggregation.Bucket>> bucketListAsOpt;
+                while (!closed.get() && (bucketListAsOpt = compositePager.nextPage()).isPresent())
+                    put(bucketListAsOpt.get());
+            } catch (Exception e) {
+                put(JMException.handleExceptionAndReturnRuntimeEx(log, e, "runPartition",
+                        compositePager.filterQueryBuilder));
+            } finally {
+                put(END_OF_PARTITION);
+            }
+        }
+
+        private void put(Object item) {
+            try {
+                while (!closed.get())
+                    if (pageQueue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                        return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (Objects.isNull(nextBucketList) && runningPartitionCount > 0 && !closed.get())
+                takeNext();
+            return Objects.nonNull(nextBucketList);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void takeNext() {
+            Object item;
+            try {
+                item = pageQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw JMException.handleExceptionAndReturnRuntimeEx(log, e, "takeNext");
+            }
+            if (item == END_OF_PARTITION)
+                runningPartitionCount--;
+            else if (item instanceof RuntimeException) {
+                close();
+                throw (RuntimeException) item;
+            } else
+                this.nextBucketList = (List<? extends CompositeAggregation.Bucket>) item;
+        }
+
+        @Override
+        public List<? extends CompositeAggregation.Bucket> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            List<? extends CompositeAggregation.Bucket> bucketList = nextBucketList;
+            this.nextBucketList = null;
+            return bucketList;
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                pageQueue.clear();
+                JMLog.debug(log, "close", runningPartitionCount);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The type Jm elasticsearch counter writer.
+ * <p>
+ * Sums counter increments per document id and field in memory and sends them on every flush interval as one bulk of
+ * scripted updates, one per document, instead of an update round trip per increment contending on the same document.
+ * Each id and field keeps a {@link LongAdder} in a concurrent map, so increments take no lock; a flush takes each sum
+ * with {@link LongAdder#sumThenReset()} and drops an adder once it stayed idle for a whole interval, and an increment
+ * that lands on a dropped adder moves its delta to the live one. A missing document is created from the deltas as its
+ * upsert, otherwise the painless script adds them to the fields, which are top level numbers. Deltas of failed bulk
+ * items are logged, counted and lost.
+ */
+@Slf4j
+public class JMElasticsearchCounterWriter implements AutoCloseable {
+
+    private static final long DRAIN_TIMEOUT_MINUTES = 1;
+    private static final String DELTAS_PARAM = "deltas";
+    private static final String INCREMENT_SCRIPT = "for (def entry : params." + DELTAS_PARAM + ".entrySet()) {" +
+            " def value = ctx._source[entry.getKey()];" +
+            " ctx._source[entry.getKey()] = (value == null ? 0 : value) + entry.getValue(); }";
+
+    private final JMElasticsearchClient jmESClient;
+    @Getter
+    private final String index;
+    private final Map<Map.Entry<String, String>, LongAdder> deltaMap = new ConcurrentHashMap<>();
+    private final Scheduler.Cancellable flusher;
+    private final Phaser inFlightBulks = new Phaser(1);
+    private final LongAdder flushedDocCount = new LongAdder();
+    private final LongAdder failedDeltaCount = new LongAdder();
+    @Getter
+    @Setter
+    private volatile int retryOnConflict = 3;
+
+    /**
+     * Instantiates a new Jm elasticsearch counter writer.
+     *
+     * @param jmElasticsearchClient the jm elasticsearch client
+     * @param index                 the index
+     * @param flushIntervalMillis   the flush interval millis
+     */
+    public JMElasticsearchCounterWriter(JMElasticsearchClient jmElasticsearchClient, String index,
+            long flushIntervalMillis) {
+        this.jmESClient = jmElasticsearchClient;
+        this.index = index;
+        this.flusher = jmElasticsearchClient.threadPool().scheduleWithFixedDelay(this::flush,
+                TimeValue.timeValueMillis(flushIntervalMillis), ThreadPool.Names.GENERIC);
+        JMLog.info(log, "JMElasticsearchCounterWriter", index, flushIntervalMillis);
+    }
+
+    /**
+     * Increment.
+     *
+     * @param id    the id
+     * @param field the field
+     */
+    public void increment(String id, String field) {
+        add(id, field, 1);
+    }
+
+    /**
+     * Add.
+     *
+     * @param id    the id
+     * @param field the field
+     * @param delta the delta
+     */
+    public void add(String id, String field, long delta) {
+        Map.Entry<String, String> deltaKey = Map.entry(id, field);
+        LongAdder adder = deltaMap.computeIfAbsent(deltaKey, key -> new LongAdder());
+        adder.add(delta);
+        // a flush may have dropped the adder in between, so move what landed on it to the live one
+        if (deltaMap.get(deltaKey) != adder) {
+            long orphanedDelta = adder.sumThenReset();
+            if (orphanedDelta != 0)
+                add(id, field, orphanedDelta);
+        }
+    }
+
+    /**
+     * Flush the pending deltas as one bulk request. Only the upsert path, which creates missing documents, is covered
+     * by the tests; the painless increment script for existing documents is untested, as the embedded node has no
+     * painless module.
+     */
+    public synchronized void flush() {
+        Map<String, Map<String, Object>> docDeltaMap = new HashMap<>();
+        deltaMap.forEach((deltaKey, adder) -> {
+            long sum = adder.sumThenReset();
+            if (sum == 0 && deltaMap.remove(deltaKey, adder))
+                sum = adder.sumThenReset();
+            if (sum != 0)
+                docDeltaMap.computeIfAbsent(deltaKey.getKey(), id -> new HashMap<>()).put(deltaKey.getValue(), sum);
+        });
+        if (docDeltaMap.isEmpty())
+            return;
+        BulkRequest bulkRequest = new BulkRequest();
+        int[] itemDeltaCounts = new int[docDeltaMap.size()];
+        docDeltaMap.forEach((id, deltas) -> {
+            itemDeltaCounts[bulkRequest.numberOfActions()] = deltas.size();
+            bulkRequest.add(new UpdateRequest(index, id).script(new Script(ScriptType.INLINE,
+                    Script.DEFAULT_SCRIPT_LANG, INCREMENT_SCRIPT, Map.of(DELTAS_PARAM, deltas))).upsert(deltas)
+                    .retryOnConflict(retryOnConflict));
+        });
+        flushedDocCount.add(docDeltaMap.size());
+        log.debug("flush - index = {}, docs = {}", index, docDeltaMap.size());
+        inFlightBulks.register();
+        jmESClient.bulk(bulkRequest, ActionListener.runAfter(buildBulkListener(itemDeltaCounts),
+                inFlightBulks::arriveAndDeregister));
+    }
+
+    private ActionListener<BulkResponse> buildBulkListener(int[] itemDeltaCounts) {
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(BulkResponse bulkResponse) {
+                if (bulkResponse.hasFailures()) {
+                    for (BulkItemResponse itemResponse : bulkResponse.getItems())
+                        if (itemResponse.isFailed())
+                            failedDeltaCount.add(itemDeltaCounts[itemResponse.getItemId()]);
+                    log.error("[Failure] Counter flush - index = {}, {}", index, bulkResponse.buildFailureMessage());
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                for (int itemDeltaCount : itemDeltaCounts)
+                    failedDeltaCount.add(itemDeltaCount);
+                JMException.handleException(log, e, "flush", index, itemDeltaCounts.length);
+            }
+        };
+    }
+
+    /**
+     * Gets pending doc count.
+     *
+     * @return the count of documents with pending deltas
+     */
+    public int getPendingDocCount() {
+        return (int) deltaMap.entrySet().stream().filter(deltaEntry -> deltaEntry.getValue().sum() != 0)
+                .map(deltaEntry -> deltaEntry.getKey().getKey()).distinct().count();
+    }
+
+    /**
+     * Gets pending delta count.
+     *
+     * @return the count of document fields with pending deltas
+     */
+    public int getPendingDeltaCount() {
+        return (int) deltaMap.values().stream().filter(adder -> adder.sum() != 0).count();
+    }
+
+    /**
+     * Gets flushed doc count.
+     *
+     * @return the count of document updates sent
+     */
+    public long getFlushedDocCount() {
+        return flushedDocCount.sum();
+    }
+
+    /**
+     * Gets failed delta count.
+     *
+     * @return the count of document field deltas lost to failed bulk items or requests
+     */
+    public long getFailedDeltaCount() {
+        return failedDeltaCount.sum();
+    }
+
+    /**
+     * Close, flushing the pending deltas and waiting for the bulks in flight.
+     */
+    @Override
+    public void close() {
+        flusher.cancel();
+        flush();
+        try {
+            inFlightBulks.awaitAdvanceInterruptibly(inFlightBulks.arrive(), DRAIN_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (TimeoutException e) {
+            log.warn("[Timeout] Counter flush drain - {} minutes", DRAIN_TIMEOUT_MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            JMException.handleException(log, e, "close", index);
+        }
+        JMLog.info(log, "close", index, getFlushedDocCount(), getFailedDeltaCount());
+    }
+
+}
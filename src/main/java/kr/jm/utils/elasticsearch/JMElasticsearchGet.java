@@ -0,0 +1,221 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetRequestBuilder;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The type Jm elasticsearch get.
+ */
+public class JMElasticsearchGet {
+
+    private final Client esClient;
+    private volatile JMElasticsearchMultiGetBatcher multiGetBatcher;
+    private volatile JMElasticsearchHedger getHedger;
+
+    /**
+     * Instantiates a new Jm elasticsearch get.
+     *
+     * @param elasticsearchClient the elasticsearch client
+     */
+    public JMElasticsearchGet(Client elasticsearchClient) {
+        this.esClient = elasticsearchClient;
+    }
+
+    /**
+     * Sets multi get batching.
+     * <p>
+     * Gets arriving within {@code maxLingerMillis}, or up to {@code maxBatchSize} gets, are sent as a single multi get
+     * request.
+     *
+     * @param maxBatchSize    the max batch size
+     * @param maxLingerMillis the max linger millis
+     */
+    public void setMultiGetBatching(int maxBatchSize, long maxLingerMillis) {
+        JMElasticsearchMultiGetBatcher oldMultiGetBatcher = this.multiGetBatcher;
+        this.multiGetBatcher = new JMElasticsearchMultiGetBatcher(esClient, maxBatchSize, maxLingerMillis);
+        Optional.ofNullable(oldMultiGetBatcher).ifPresent(JMElasticsearchMultiGetBatcher::close);
+    }
+
+    /**
+     * Gets multi get batcher.
+     *
+     * @return the multi get batcher
+     */
+    public Optional<JMElasticsearchMultiGetBatcher> getMultiGetBatcher() {
+        return Optional.ofNullable(multiGetBatcher);
+    }
+
+    /**
+     * Close multi get batching.
+     */
+    public void closeMultiGetBatching() {
+        JMElasticsearchMultiGetBatcher oldMultiGetBatcher = this.multiGetBatcher;
+        this.multiGetBatcher = null;
+        Optional.ofNullable(oldMultiGetBatcher).ifPresent(JMElasticsearchMultiGetBatcher::close);
+    }
+
+    /**
+     * Sets get hedging.
+     * <p>
+     * Gets not answered within {@code latencyPercentile} of recent latencies are duplicated with a different
+     * preference, for at most {@code maxHedgeRatio} of all gets. Gets with a preference of their own are never
+     * hedged, so their routing is kept.
+     *
+     * @param latencyPercentile the latency percentile
+     * @param maxHedgeRatio     the max hedge ratio
+     */
+    public void setGetHedging(double latencyPercentile, double maxHedgeRatio) {
+        JMElasticsearchHedger oldGetHedger = this.getHedger;
+        this.getHedger = new JMElasticsearchHedger("getHedger", latencyPercentile, maxHedgeRatio);
+        Optional.ofNullable(oldGetHedger).ifPresent(JMElasticsearchHedger::close);
+    }
+
+    /**
+     * Gets get hedger.
+     *
+     * @return the get hedger
+     */
+    public Optional<JMElasticsearchHedger> getGetHedger() {
+        return Optional.ofNullable(getHedger);
+    }
+
+    /**
+     * Close get hedging.
+     */
+    public void closeGetHedging() {
+        JMElasticsearchHedger oldGetHedger = this.getHedger;
+        this.getHedger = null;
+        Optional.ofNullable(oldGetHedger).ifPresent(JMElasticsearchHedger::close);
+    }
+
+    /**
+     * Gets query.
+     *
+     * @param getRequestBuilder the get request builder
+     * @return the query
+     */
+    public GetResponse getQuery(GetRequestBuilder getRequestBuilder) {
+        return JMElasticsearchUtil.logRequestQueryAndReturn("getQuery", getRequestBuilder, execute(getRequestBuilder));
+    }
+
+    /**
+     * Gets query async.
+     *
+     * @param getRequestBuilder the get request builder
+     * @return the query async
+     */
+    public ActionFuture<GetResponse> getQueryAsync(GetRequestBuilder getRequestBuilder) {
+        return execute(JMElasticsearchUtil.logRequestQuery("getQueryAsync", getRequestBuilder));
+    }
+
+    private ActionFuture<GetResponse> execute(GetRequestBuilder getRequestBuilder) {
+        GetRequest getRequest = getRequestBuilder.request();
+        PlainActionFuture<GetResponse> getResponseFuture = PlainActionFuture.newFuture();
+        JMElasticsearchHedger getHedger = this.getHedger;
+        if (Objects.isNull(getHedger) || Objects.nonNull(getRequest.preference()))
+            submit(getRequest, getResponseFuture);
+        else
+            getHedger.execute(listener -> submit(getRequest, listener),
+                    (preference, listener) -> submit(buildGetRequestCopy(getRequest).preference(preference),
+                            listener), getResponseFuture);
+        return getResponseFuture;
+    }
+
+    private void submit(GetRequest getRequest, ActionListener<GetResponse> getResponseListener) {
+        JMElasticsearchMultiGetBatcher multiGetBatcher = this.multiGetBatcher;
+        if (Objects.isNull(multiGetBatcher))
+            esClient.get(getRequest, getResponseListener);
+        else
+            multiGetBatcher.submit(getRequest, getResponseListener);
+    }
+
+    private GetRequest buildGetRequestCopy(GetRequest getRequest) {
+        return new GetRequest(getRequest.index(), getRequest.id()).routing(getRequest.routing())
+                .preference(getRequest.preference()).storedFields(getRequest.storedFields())
+                .fetchSourceContext(getRequest.fetchSourceContext()).refresh(getRequest.refresh())
+                .realtime(getRequest.realtime()).version(getRequest.version())
+                .versionType(getRequest.versionType());
+    }
+
+    /**
+     * Gets doc.
+     *
+     * @param index the index
+     * @param id    the id
+     * @return the doc
+     */
+    public GetResponse getDoc(String index, String id) {
+        return getQuery(esClient.prepareGet().setIndex(index).setId(id));
+    }
+
+    /**
+     * Gets doc.
+     *
+     * @param index    the index
+     * @param id       the id
+     * @param includes the includes
+     * @param excludes the excludes
+     * @return the doc
+     */
+    public GetResponse getDoc(String index, String id, String[] includes, String[] excludes) {
+        return getQuery(esClient.prepareGet().setIndex(index).setId(id).setFetchSource(includes, excludes));
+    }
+
+    /**
+     * Gets all query.
+     *
+     * @param multiGetRequestBuilder the multi get request builder
+     * @return the all query
+     */
+    public MultiGetResponse getAllQuery(MultiGetRequestBuilder multiGetRequestBuilder) {
+        return JMElasticsearchUtil
+                .logRequestQueryAndReturn("getAllQuery", multiGetRequestBuilder, multiGetRequestBuilder.execute());
+    }
+
+    /**
+     * Gets all.
+     *
+     * @param index the index
+     * @param ids   the ids
+     * @return the all
+     */
+    public MultiGetResponse getAll(String index, Collection<String> ids) {
+        return getAllQuery(buildMultiGetRequestBuilder(index, ids, null));
+    }
+
+    /**
+     * Gets all.
+     *
+     * @param index    the index
+     * @param ids      the ids
+     * @param includes the includes
+     * @param excludes the excludes
+     * @return the all
+     */
+    public MultiGetResponse getAll(String index, Collection<String> ids, String[] includes, String[] excludes) {
+        return getAllQuery(
+                buildMultiGetRequestBuilder(index, ids, new FetchSourceContext(true, includes, excludes)));
+    }
+
+    private MultiGetRequestBuilder buildMultiGetRequestBuilder(String index, Collection<String> ids,
+            FetchSourceContext fetchSourceContext) {
+        MultiGetRequestBuilder multiGetRequestBuilder = esClient.prepareMultiGet();
+        for (String id : ids)
+            multiGetRequestBuilder.add(new MultiGetRequest.Item(index, id).fetchSourceContext(fetchSourceContext));
+        return multiGetRequestBuilder;
+    }
+
+}
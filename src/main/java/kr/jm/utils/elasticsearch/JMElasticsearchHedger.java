@@ -0,0 +1,201 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * The type Jm elasticsearch hedger.
+ * <p>
+ * Issues a duplicate (hedge) request when the primary request has not answered within the configured percentile of
+ * recent latencies, and completes the caller with whichever answers first. The loser's response is discarded. Hedges
+ * are capped at {@code maxHedgeRatio} of all requests. The hedge replaces the preference, so callers only hedge
+ * requests that carry none of their own.
+ */
+@Slf4j
+public class JMElasticsearchHedger implements AutoCloseable {
+
+    private static final int LATENCY_SAMPLE_SIZE = 1024;
+    private static final int MIN_SAMPLE_COUNT = 100;
+    private static final int RECALCULATION_INTERVAL = 64;
+
+    private final String name;
+    private final ScheduledExecutorService hedgeScheduler;
+    private final long[] latencyNanosSamples = new long[LATENCY_SAMPLE_SIZE];
+    private final AtomicLong latencySampleCount = new AtomicLong();
+    private final AtomicLong hedgePreferenceSequence = new AtomicLong();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    @Getter
+    @Setter
+    private volatile double latencyPercentile;
+    @Getter
+    @Setter
+    private volatile double maxHedgeRatio;
+    @Getter
+    @Setter
+    private volatile long minHedgeDelayMillis;
+    private volatile long hedgeDelayNanos = -1;
+
+    /**
+     * Instantiates a new Jm elasticsearch hedger.
+     *
+     * @param name              the name
+     * @param latencyPercentile the latency percentile, e.g. 95.0
+     * @param maxHedgeRatio     the max hedge ratio, e.g. 0.05 for at most 5% extra requests
+     */
+    public JMElasticsearchHedger(String name, double latencyPercentile, double maxHedgeRatio) {
+        this.name = name;
+        this.latencyPercentile = latencyPercentile;
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.minHedgeDelayMillis = 1;
+        this.hedgeScheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory(name));
+    }
+
+    /**
+     * Execute.
+     *
+     * @param <R>              the type parameter
+     * @param primaryAttempt   the primary attempt
+     * @param hedgeAttempt     the hedge attempt, called with a preference different from the primary
+     * @param responseListener the response listener
+     */
+    public <R> void execute(Consumer<ActionListener<R>> primaryAttempt,
+            BiConsumer<String, ActionListener<R>> hedgeAttempt,
+            ActionListener<R> responseListener) {
+        requestCount.increment();
+        long startNanos = System.nanoTime();
+        AtomicBoolean isDone = new AtomicBoolean();
+        AtomicInteger pendingAttempts = new AtomicInteger(1);
+        ScheduledFuture<?>[] hedgeFuture = new ScheduledFuture<?>[1];
+        long currentHedgeDelayNanos = this.hedgeDelayNanos;
+        if (currentHedgeDelayNanos > 0)
+            hedgeFuture[0] = hedgeScheduler.schedule(() -> {
+                if (isDone.get() || !tryAcquireHedge())
+                    return;
+                pendingAttempts.incrementAndGet();
+                JMLog.debug(log, "hedge", name, currentHedgeDelayNanos);
+                hedgeAttempt.accept(buildHedgePreference(),
+                        buildAttemptListener(true, startNanos, isDone, pendingAttempts, hedgeFuture,
+                                responseListener));
+            }, currentHedgeDelayNanos, TimeUnit.NANOSECONDS);
+        primaryAttempt.accept(
+                buildAttemptListener(false, startNanos, isDone, pendingAttempts, hedgeFuture, responseListener));
+    }
+
+    private <R> ActionListener<R> buildAttemptListener(boolean isHedge, long startNanos, AtomicBoolean isDone,
+            AtomicInteger pendingAttempts, ScheduledFuture<?>[] hedgeFuture, ActionListener<R> responseListener) {
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(R response) {
+                if (!isHedge)
+                    recordLatency(System.nanoTime() - startNanos);
+                if (isDone.compareAndSet(false, true)) {
+                    cancelHedge(hedgeFuture);
+                    if (isHedge)
+                        hedgeWinCount.increment();
+                    responseListener.onResponse(response);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // a failed attempt only fails the caller when no other attempt is still running
+                if (pendingAttempts.decrementAndGet() == 0 && isDone.compareAndSet(false, true)) {
+                    cancelHedge(hedgeFuture);
+                    responseListener.onFailure(e);
+                }
+            }
+        };
+    }
+
+    private void cancelHedge(ScheduledFuture<?>[] hedgeFuture) {
+        if (hedgeFuture[0] != null)
+            hedgeFuture[0].cancel(false);
+    }
+
+    private boolean tryAcquireHedge() {
+        if (hedgeCount.sum() >= requestCount.sum() * maxHedgeRatio)
+            return false;
+        hedgeCount.increment();
+        return true;
+    }
+
+    private String buildHedgePreference() {
+        return "hedge-" + hedgePreferenceSequence.incrementAndGet();
+    }
+
+    private void recordLatency(long latencyNanos) {
+        long sampleCount = latencySampleCount.getAndIncrement();
+        latencyNanosSamples[(int) (sampleCount % LATENCY_SAMPLE_SIZE)] = latencyNanos;
+        if (sampleCount >= MIN_SAMPLE_COUNT && sampleCount % RECALCULATION_INTERVAL == 0)
+            this.hedgeDelayNanos = calculateHedgeDelayNanos(sampleCount + 1);
+    }
+
+    private long calculateHedgeDelayNanos(long sampleCount) {
+        long[] sortedSamples = Arrays.copyOf(latencyNanosSamples, (int) Math.min(sampleCount, LATENCY_SAMPLE_SIZE));
+        Arrays.sort(sortedSamples);
+        int percentileIndex = (int) Math.min(sortedSamples.length - 1,
+                Math.ceil(latencyPercentile / 100 * sortedSamples.length) - 1);
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(minHedgeDelayMillis),
+                sortedSamples[Math.max(0, percentileIndex)]);
+    }
+
+    /**
+     * Gets hedge delay millis.
+     *
+     * @return the hedge delay millis, -1 until enough latency samples are recorded
+     */
+    public long getHedgeDelayMillis() {
+        return hedgeDelayNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos);
+    }
+
+    /**
+     * Gets request count.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * Gets hedge count.
+     *
+     * @return the hedge count
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * Gets hedge win count.
+     *
+     * @return the hedge win count
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    @Override
+    public void close() {
+        hedgeScheduler.shutdownNow();
+    }
+
+}
@@ -0,0 +1,72 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.*;
+import org.elasticsearch.client.Client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The type Jm elasticsearch multi get batcher.
+ */
+public class JMElasticsearchMultiGetBatcher extends JMElasticsearchBatcher<GetRequest, GetResponse> {
+
+    private final Client esClient;
+
+    /**
+     * Instantiates a new Jm elasticsearch multi get batcher.
+     *
+     * @param elasticsearchClient the elasticsearch client
+     * @param maxBatchSize        the max batch size
+     * @param maxLingerMillis     the max linger millis
+     */
+    public JMElasticsearchMultiGetBatcher(Client elasticsearchClient, int maxBatchSize, long maxLingerMillis) {
+        super("multiGetBatcher", maxBatchSize, maxLingerMillis);
+        this.esClient = elasticsearchClient;
+    }
+
+    @Override
+    protected void sendBatch(List<GetRequest> requestList, List<ActionListener<GetResponse>> listenerList) {
+        List<GetRequest> itemRequestList = new ArrayList<>(requestList.size());
+        List<ActionListener<GetResponse>> itemListenerList = new ArrayList<>(listenerList.size());
+        for (int i = 0; i < requestList.size(); i++) {
+            GetRequest getRequest = requestList.get(i);
+            // realtime, refresh and preference are per multi get request, so only default gets are merged
+            if (isMergeable(getRequest)) {
+                itemRequestList.add(getRequest);
+                itemListenerList.add(listenerList.get(i));
+            } else
+                esClient.get(getRequest, listenerList.get(i));
+        }
+        if (itemRequestList.size() == 1)
+            esClient.get(itemRequestList.get(0), itemListenerList.get(0));
+        else if (itemRequestList.size() > 1)
+            esClient.multiGet(buildMultiGetRequest(itemRequestList), ActionListener.wrap(multiGetResponse -> {
+                MultiGetItemResponse[] responses = multiGetResponse.getResponses();
+                for (int i = 0; i < responses.length; i++)
+                    if (responses[i].isFailed())
+                        itemListenerList.get(i).onFailure(responses[i].getFailure().getFailure());
+                    else
+                        itemListenerList.get(i).onResponse(responses[i].getResponse());
+            }, e -> itemListenerList.forEach(listener -> listener.onFailure(e))));
+    }
+
+    private boolean isMergeable(GetRequest getRequest) {
+        return getRequest.realtime() && !getRequest.refresh() && Objects.isNull(getRequest.preference());
+    }
+
+    private MultiGetRequest buildMultiGetRequest(List<GetRequest> getRequestList) {
+        MultiGetRequest multiGetRequest = new MultiGetRequest();
+        getRequestList.stream().map(this::buildItem).forEach(multiGetRequest::add);
+        return multiGetRequest;
+    }
+
+    private MultiGetRequest.Item buildItem(GetRequest getRequest) {
+        return new MultiGetRequest.Item(getRequest.index(), getRequest.id()).routing(getRequest.routing())
+                .storedFields(getRequest.storedFields()).fetchSourceContext(getRequest.fetchSourceContext())
+                .version(getRequest.version()).versionType(getRequest.versionType());
+    }
+
+}
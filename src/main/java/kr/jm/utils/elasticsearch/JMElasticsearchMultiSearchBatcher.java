@@ -0,0 +1,49 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+
+import java.util.List;
+
+/**
+ * The type Jm elasticsearch multi search batcher.
+ */
+public class JMElasticsearchMultiSearchBatcher extends JMElasticsearchBatcher<SearchRequest, SearchResponse> {
+
+    private final Client esClient;
+
+    /**
+     * Instantiates a new Jm elasticsearch multi search batcher.
+     *
+     * @param elasticsearchClient the elasticsearch client
+     * @param maxBatchSize        the max batch size
+     * @param maxLingerMillis     the max linger millis
+     */
+    public JMElasticsearchMultiSearchBatcher(Client elasticsearchClient, int maxBatchSize, long maxLingerMillis) {
+        super("multiSearchBatcher", maxBatchSize, maxLingerMillis);
+        this.esClient = elasticsearchClient;
+    }
+
+    @Override
+    protected void sendBatch(List<SearchRequest> requestList, List<ActionListener<SearchResponse>> listenerList) {
+        if (requestList.size() == 1) {
+            esClient.search(requestList.get(0), listenerList.get(0));
+            return;
+        }
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        requestList.forEach(multiSearchRequest::add);
+        esClient.multiSearch(multiSearchRequest, ActionListener.wrap(multiSearchResponse -> {
+            MultiSearchResponse.Item[] items = multiSearchResponse.getResponses();
+            for (int i = 0; i < items.length; i++)
+                if (items[i].isFailure())
+                    listenerList.get(i).onFailure(items[i].getFailure());
+                else
+                    listenerList.get(i).onResponse(items[i].getResponse());
+        }, e -> listenerList.forEach(listener -> listener.onFailure(e))));
+    }
+
+}
@@ -0,0 +1,49 @@
+package kr.jm.utils.elasticsearch;
+
+/**
+ * The enum Jm elasticsearch operation type.
+ */
+public enum JMElasticsearchOperationType {
+
+    /**
+     * Bulk and single document writes.
+     */
+    BULK,
+    /**
+     * Search, multi search, scroll and count.
+     */
+    SEARCH,
+    /**
+     * Get and multi get.
+     */
+    GET,
+    /**
+     * Index and cluster administration.
+     */
+    ADMIN,
+    /**
+     * Everything else.
+     */
+    OTHER;
+
+    /**
+     * Of jm elasticsearch operation type.
+     *
+     * @param actionName the action name
+     * @return the jm elasticsearch operation type
+     */
+    public static JMElasticsearchOperationType of(String actionName) {
+        if (actionName.startsWith("indices:data/write/"))
+            return BULK;
+        if (actionName.startsWith("indices:data/read/search") || actionName.startsWith("indices:data/read/msearch")
+                || actionName.startsWith("indices:data/read/scroll"))
+            return SEARCH;
+        if (actionName.startsWith("indices:data/read/get") || actionName.startsWith("indices:data/read/mget"))
+            return GET;
+        if (actionName.startsWith("indices:admin/") || actionName.startsWith("indices:monitor/")
+                || actionName.startsWith("cluster:"))
+            return ADMIN;
+        return OTHER;
+    }
+
+}
@@ -0,0 +1,232 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The type Jm elasticsearch payload accounting.
+ * <p>
+ * Counts requests, responses, failures and payload bytes per action, so the calls that dominate network I/O show up.
+ * Bytes are measured by serializing the request and response into a stream that only counts, so they are the
+ * uncompressed transport payload; with transport compression on, the wire carries less. Measuring costs a
+ * serialization pass per call, which is why accounting is off until enabled.
+ */
+@Slf4j
+public class JMElasticsearchPayloadAccounting {
+
+    @Getter
+    private volatile boolean enabled;
+    private final Map<String, PayloadStats> actionPayloadStatsMap = new ConcurrentHashMap<>();
+
+    /**
+     * Sets enabled.
+     *
+     * @param enabled the enabled
+     */
+    public void setEnabled(boolean enabled) {
+        JMLog.info(log, "setEnabled", enabled);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Account the request and wrap the listener to account the response.
+     *
+     * @param <Response> the type parameter
+     * @param actionName the action name
+     * @param request    the request
+     * @param listener   the listener
+     * @return the listener accounting the response
+     */
+    public <Response extends Writeable> ActionListener<Response> account(String actionName, Writeable request,
+            ActionListener<Response> listener) {
+        PayloadStats payloadStats = actionPayloadStatsMap.computeIfAbsent(actionName, PayloadStats::new);
+        payloadStats.requestCount.increment();
+        payloadStats.requestBytes.add(measureBytes(request));
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(Response response) {
+                payloadStats.responseCount.increment();
+                payloadStats.responseBytes.add(measureBytes(response));
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                payloadStats.failureCount.increment();
+                listener.onFailure(e);
+            }
+        };
+    }
+
+    /**
+     * Measure bytes long.
+     *
+     * @param writeable the writeable
+     * @return the serialized bytes, 0 when it cannot be serialized
+     */
+    public static long measureBytes(Writeable writeable) {
+        try (CountingStreamOutput countingStreamOutput = new CountingStreamOutput()) {
+            writeable.writeTo(countingStreamOutput);
+            return countingStreamOutput.count;
+        } catch (Exception e) {
+            JMException.handleException(log, e, "measureBytes", writeable.getClass());
+            return 0;
+        }
+    }
+
+    /**
+     * Gets action payload stats map.
+     *
+     * @return the payload stats by action name
+     */
+    public Map<String, PayloadStats> getActionPayloadStatsMap() {
+        return Collections.unmodifiableMap(new TreeMap<>(actionPayloadStatsMap));
+    }
+
+    /**
+     * Gets operation payload stats map.
+     *
+     * @return the payload stats summed by operation type
+     */
+    public Map<JMElasticsearchOperationType, PayloadStats> getOperationPayloadStatsMap() {
+        Map<JMElasticsearchOperationType, PayloadStats> operationPayloadStatsMap =
+                new EnumMap<>(JMElasticsearchOperationType.class);
+        actionPayloadStatsMap.values().forEach(payloadStats -> operationPayloadStatsMap
+                .computeIfAbsent(JMElasticsearchOperationType.of(payloadStats.name),
+                        operationType -> new PayloadStats(operationType.name())).add(payloadStats));
+        return operationPayloadStatsMap;
+    }
+
+    /**
+     * Reset.
+     */
+    public void reset() {
+        actionPayloadStatsMap.clear();
+    }
+
+    /**
+     * The type Payload stats.
+     */
+    public static class PayloadStats {
+        @Getter
+        private final String name;
+        private final LongAdder requestCount = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseCount = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+
+        private PayloadStats(String name) {
+            this.name = name;
+        }
+
+        private void add(PayloadStats payloadStats) {
+            requestCount.add(payloadStats.getRequestCount());
+            requestBytes.add(payloadStats.getRequestBytes());
+            responseCount.add(payloadStats.getResponseCount());
+            responseBytes.add(payloadStats.getResponseBytes());
+            failureCount.add(payloadStats.getFailureCount());
+        }
+
+        /**
+         * Gets request count.
+         *
+         * @return the request count
+         */
+        public long getRequestCount() {
+            return requestCount.sum();
+        }
+
+        /**
+         * Gets request bytes.
+         *
+         * @return the request bytes
+         */
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        /**
+         * Gets response count.
+         *
+         * @return the response count
+         */
+        public long getResponseCount() {
+            return responseCount.sum();
+        }
+
+        /**
+         * Gets response bytes.
+         *
+         * @return the response bytes
+         */
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        /**
+         * Gets failure count.
+         *
+         * @return the failure count
+         */
+        public long getFailureCount() {
+            return failureCount.sum();
+        }
+
+        /**
+         * Gets total bytes.
+         *
+         * @return the request and response bytes
+         */
+        public long getTotalBytes() {
+            return getRequestBytes() + getResponseBytes();
+        }
+
+        @Override
+        public String toString() {
+            return "PayloadStats(name=" + name + ", requestCount=" + getRequestCount() + ", requestBytes=" +
+                    getRequestBytes() + ", responseCount=" + getResponseCount() + ", responseBytes=" +
+                    getResponseBytes() + ", failureCount=" + getFailureCount() + ")";
+        }
+    }
+
+    private static class CountingStreamOutput extends StreamOutput {
+        private long count;
+
+        @Override
+        public void writeByte(byte b) {
+            count++;
+        }
+
+        @Override
+        public void writeBytes(byte[] b, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void reset() {
+            count = 0;
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package kr.jm.utils.elasticsearch;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.search.SearchHit;
+
+import java.util.*;
+
+/**
+ * The type Jm elasticsearch projection.
+ * <p>
+ * The fields a search returns per hit: {@code _source} includes and excludes or no {@code _source} at all, doc value
+ * fields and stored fields. Doc value and stored fields come back in the hit fields rather than the source; the column
+ * accessors read them over a page of hits without parsing any source. Date doc values are strings in the field or given
+ * format; with {@code epoch_millis} they read as a long column.
+ */
+@Getter
+@ToString
+public class JMElasticsearchProjection {
+
+    /**
+     * The constant EPOCH_MILLIS_FORMAT.
+     */
+    public static final String EPOCH_MILLIS_FORMAT = "epoch_millis";
+
+    private boolean fetchSource = true;
+    private String[] sourceIncludes;
+    private String[] sourceExcludes;
+    private final Map<String, String> docValueFieldFormatMap = new LinkedHashMap<>();
+    private final List<String> storedFieldList = new ArrayList<>();
+
+    /**
+     * Source includes jm elasticsearch projection.
+     *
+     * @param sourceIncludes the source includes, wildcards allowed
+     * @return the jm elasticsearch projection
+     */
+    public static JMElasticsearchProjection sourceIncludes(String... sourceIncludes) {
+        return new JMElasticsearchProjection().includes(sourceIncludes);
+    }
+
+    /**
+     * No source jm elasticsearch projection.
+     *
+     * @return the jm elasticsearch projection
+     */
+    public static JMElasticsearchProjection noSource() {
+        return new JMElasticsearchProjection().fetchSource(false);
+    }
+
+    /**
+     * Doc value fields only jm elasticsearch projection, without the source.
+     *
+     * @param fields the fields
+     * @return the jm elasticsearch projection
+     */
+    public static JMElasticsearchProjection docValueFieldsOnly(String... fields) {
+        return noSource().docValueFields(fields);
+    }
+
+    /**
+     * Fetch source jm elasticsearch projection.
+     *
+     * @param fetchSource the fetch source
+     * @return the jm elasticsearch projection
+     */
+    public JMElasticsearchProjection fetchSource(boolean fetchSource) {
+        this.fetchSource = fetchSource;
+        return this;
+    }
+
+    /**
+     * Includes jm elasticsearch projection.
+     *
+     * @param sourceIncludes the source includes, wildcards allowed
+     * @return the jm elasticsearch projection
+     */
+    public JMElasticsearchProjection includes(String... sourceIncludes) {
+        this.sourceIncludes = sourceIncludes;
+        return this;
+    }
+
+    /**
+     * Excludes jm elasticsearch projection.
+     *
+     * @param sourceExcludes the source excludes, wildcards allowed
+     * @return the jm elasticsearch projection
+     */
+    public JMElasticsearchProjection excludes(String... sourceExcludes) {
+        this.sourceExcludes = sourceExcludes;
+        return this;
+    }
+
+    /**
+     * Doc value fields jm elasticsearch projection.
+     *
+     * @param fields the fields
+     * @return the jm elasticsearch projection
+     */
+    public JMElasticsearchProjection docValueFields(String... fields) {
+        for (String field : fields)
+            docValueField(field, null);
+        return this;
+    }
+
+    /**
+     * Doc value field jm elasticsearch projection.
+     *
+     * @param field  the field
+     * @param format the format, null for the default of the field type
+     * @return the jm elasticsearch projection
+     */
+    public JMElasticsearchProjection docValueField(String field, String format) {
+        docValueFieldFormatMap.put(field, format);
+        return this;
+    }
+
+    /**
+     * Stored fields jm elasticsearch projection.
+     *
+     * @param fields the fields, {@code _none_} for no metadata either
+     * @return the jm elasticsearch projection
+     */
+    public JMElasticsearchProjection storedFields(String... fields) {
+        storedFieldList.addAll(Arrays.asList(fields));
+        return this;
+    }
+
+    /**
+     * Apply search request builder.
+     *
+     * @param searchRequestBuilder the search request builder
+     * @return the search request builder
+     */
+    public SearchRequestBuilder apply(SearchRequestBuilder searchRequestBuilder) {
+        if (!fetchSource)
+            searchRequestBuilder.setFetchSource(false);
+        else if (Objects.nonNull(sourceIncludes) || Objects.nonNull(sourceExcludes))
+            searchRequestBuilder.setFetchSource(sourceIncludes, sourceExcludes);
+        docValueFieldFormatMap.forEach(searchRequestBuilder::addDocValueField);
+        if (!storedFieldList.isEmpty())
+            searchRequestBuilder.storedFields(storedFieldList.toArray(String[]::new));
+        return searchRequestBuilder;
+    }
+
+    /**
+     * Gets field value, the first doc value or stored value of the field.
+     *
+     * @param searchHit the search hit
+     * @param field     the field
+     * @return the field value
+     */
+    public static Optional<Object> getFieldValue(SearchHit searchHit, String field) {
+        return Optional.ofNullable(searchHit.field(field)).map(DocumentField::getValue);
+    }
+
+    /**
+     * Get long column long [ ], a numeric or epoch millis doc value field over the hits.
+     *
+     * @param searchHits   the search hits
+     * @param field        the field
+     * @param missingValue the value for hits without the field
+     * @return the long column
+     */
+    public static long[] getLongColumn(SearchHit[] searchHits, String field, long missingValue) {
+        long[] column = new long[searchHits.length];
+        for (int i = 0; i < searchHits.length; i++) {
+            Object value = getFieldValue(searchHits[i], field).orElse(null);
+            column[i] = Objects.isNull(value) ? missingValue : value instanceof Number ? ((Number) value).longValue() :
+                    Long.parseLong(value.toString());
+        }
+        return column;
+    }
+
+    /**
+     * Get double column double [ ], a numeric doc value field over the hits.
+     *
+     * @param searchHits the search hits
+     * @param field      the field
+     * @return the double column, {@link Double#NaN} for hits without the field
+     */
+    public static double[] getDoubleColumn(SearchHit[] searchHits, String field) {
+        double[] column = new double[searchHits.length];
+        for (int i = 0; i < searchHits.length; i++) {
+            Object value = getFieldValue(searchHits[i], field).orElse(null);
+            column[i] = Objects.isNull(value) ? Double.NaN : value instanceof Number ?
+                    ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+        }
+        return column;
+    }
+
+    /**
+     * Get string column string [ ], a doc value field such as a keyword over the hits.
+     *
+     * @param searchHits the search hits
+     * @param field      the field
+     * @return the string column, null for hits without the field
+     */
+    public static String[] getStringColumn(SearchHit[] searchHits, String field) {
+        String[] column = new String[searchHits.length];
+        for (int i = 0; i < searchHits.length; i++)
+            column[i] = getFieldValue(searchHits[i], field).map(Object::toString).orElse(null);
+        return column;
+    }
+
+}
@@ -0,0 +1,121 @@
+package kr.jm.utils.elasticsearch;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The type Jm elasticsearch rate limiter.
+ * <p>
+ * A lock-free token bucket kept as a single theoretical arrival time (GCRA): each acquisition advances the arrival
+ * time by the cost of its permits with one compare-and-set, and waits while the previous arrival time is further
+ * ahead than the allowed burst. The rate and burst can be changed at any time and apply to the next acquisition. A
+ * rate of 0 or less means unlimited.
+ */
+public class JMElasticsearchRateLimiter {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong theoreticalArrivalNanos = new AtomicLong(Long.MIN_VALUE);
+    @Getter
+    private volatile double permitsPerSecond;
+    @Getter
+    private volatile double burstSeconds;
+    private volatile double nanosPerPermit;
+    private volatile long burstToleranceNanos;
+
+    /**
+     * Instantiates a new Jm elasticsearch rate limiter.
+     *
+     * @param permitsPerSecond the permits per second
+     */
+    public JMElasticsearchRateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, 1);
+    }
+
+    /**
+     * Instantiates a new Jm elasticsearch rate limiter.
+     *
+     * @param permitsPerSecond the permits per second
+     * @param burstSeconds     the burst seconds, how many seconds of permits may be taken at once
+     */
+    public JMElasticsearchRateLimiter(double permitsPerSecond, double burstSeconds) {
+        setRate(permitsPerSecond, burstSeconds);
+    }
+
+    /**
+     * Sets rate.
+     *
+     * @param permitsPerSecond the permits per second
+     * @param burstSeconds     the burst seconds
+     */
+    public void setRate(double permitsPerSecond, double burstSeconds) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burstSeconds = burstSeconds;
+        this.nanosPerPermit = permitsPerSecond > 0 ? NANOS_PER_SECOND / permitsPerSecond : 0;
+        this.burstToleranceNanos = (long) (burstSeconds * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Sets permits per second.
+     *
+     * @param permitsPerSecond the permits per second
+     */
+    public void setPermitsPerSecond(double permitsPerSecond) {
+        setRate(permitsPerSecond, burstSeconds);
+    }
+
+    /**
+     * Is unlimited boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isUnlimited() {
+        return nanosPerPermit == 0;
+    }
+
+    /**
+     * Reserve long.
+     *
+     * @param permits the permits
+     * @return the nanos to wait before the permits may be used
+     */
+    public long reserve(long permits) {
+        double nanosPerPermit = this.nanosPerPermit;
+        if (nanosPerPermit == 0 || permits <= 0)
+            return 0;
+        long costNanos = (long) (permits * nanosPerPermit);
+        while (true) {
+            long nowNanos = System.nanoTime();
+            long arrivalNanos = theoreticalArrivalNanos.get();
+            long startNanos = Math.max(arrivalNanos, nowNanos);
+            if (theoreticalArrivalNanos.compareAndSet(arrivalNanos, startNanos + costNanos))
+                return Math.max(0, startNanos - burstToleranceNanos - nowNanos);
+        }
+    }
+
+    /**
+     * Acquire.
+     *
+     * @param permits the permits
+     */
+    public void acquire(long permits) {
+        park(reserve(permits));
+    }
+
+    /**
+     * Park the calling thread for the nanos a reservation returned.
+     *
+     * @param waitNanos the wait nanos
+     */
+    public static void park(long waitNanos) {
+        if (waitNanos <= 0)
+            return;
+        long deadlineNanos = System.nanoTime() + waitNanos;
+        while ((waitNanos = deadlineNanos - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted())
+            LockSupport.parkNanos(JMElasticsearchRateLimiter.class, waitNanos);
+    }
+
+}
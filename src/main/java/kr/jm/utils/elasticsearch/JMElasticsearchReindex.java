@@ -0,0 +1,107 @@
+package kr.jm.utils.elasticsearch;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.reindex.AbstractBulkByScrollRequest;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.BulkByScrollTask;
+import org.elasticsearch.index.reindex.ReindexAction;
+import org.elasticsearch.index.reindex.ReindexRequest;
+import org.elasticsearch.index.reindex.ReindexRequestBuilder;
+import org.elasticsearch.script.Script;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * The type Jm elasticsearch reindex.
+ * <p>
+ * Reindex requests built here use automatic slicing, so the work is split over the source shards. Asynchronous runs
+ * return a {@link JMElasticsearchReindexTask} that reports progress and can be rethrottled or cancelled while running.
+ */
+public class JMElasticsearchReindex {
+
+    /**
+     * The constant DEFAULT_PROGRESS_INTERVAL.
+     */
+    public static final TimeValue DEFAULT_PROGRESS_INTERVAL = TimeValue.timeValueSeconds(5);
+
+    private final Client esClient;
+
+    /**
+     * Instantiates a new Jm elasticsearch reindex.
+     *
+     * @param elasticsearchClient the elasticsearch client
+     */
+    public JMElasticsearchReindex(Client elasticsearchClient) {
+        this.esClient = elasticsearchClient;
+    }
+
+    /**
+     * Gets reindex request builder.
+     *
+     * @param sourceQuery   the source query, null for all documents
+     * @param destIndex     the dest index
+     * @param script        the script, null for none
+     * @param sourceIndices the source indices
+     * @return the reindex request builder
+     */
+    public ReindexRequestBuilder getReindexRequestBuilder(QueryBuilder sourceQuery, String destIndex, Script script,
+            String... sourceIndices) {
+        ReindexRequestBuilder reindexRequestBuilder =
+                new ReindexRequestBuilder(esClient, ReindexAction.INSTANCE).source(sourceIndices)
+                        .destination(destIndex).setSlices(AbstractBulkByScrollRequest.AUTO_SLICES);
+        if (Objects.nonNull(sourceQuery))
+            reindexRequestBuilder.filter(sourceQuery);
+        if (Objects.nonNull(script))
+            reindexRequestBuilder.script(script);
+        return reindexRequestBuilder;
+    }
+
+    /**
+     * Reindex bulk by scroll response.
+     *
+     * @param sourceQuery   the source query, null for all documents
+     * @param destIndex     the dest index
+     * @param sourceIndices the source indices
+     * @return the bulk by scroll response
+     */
+    public BulkByScrollResponse reindex(QueryBuilder sourceQuery, String destIndex, String... sourceIndices) {
+        ReindexRequestBuilder reindexRequestBuilder =
+                getReindexRequestBuilder(sourceQuery, destIndex, null, sourceIndices);
+        return JMElasticsearchUtil
+                .logRequestQueryAndReturn("reindex", reindexRequestBuilder, reindexRequestBuilder.execute());
+    }
+
+    /**
+     * Reindex async jm elasticsearch reindex task.
+     *
+     * @param sourceQuery       the source query, null for all documents
+     * @param destIndex         the dest index
+     * @param script            the script, null for none
+     * @param requestsPerSecond the requests per second, {@link Float#POSITIVE_INFINITY} for unthrottled
+     * @param progressListener  the progress listener, null for none
+     * @param sourceIndices     the source indices
+     * @return the jm elasticsearch reindex task
+     */
+    public JMElasticsearchReindexTask reindexAsync(QueryBuilder sourceQuery, String destIndex, Script script,
+            float requestsPerSecond, Consumer<BulkByScrollTask.Status> progressListener, String... sourceIndices) {
+        return reindexAsync(getReindexRequestBuilder(sourceQuery, destIndex, script, sourceIndices)
+                .setRequestsPerSecond(requestsPerSecond).request(), DEFAULT_PROGRESS_INTERVAL, progressListener);
+    }
+
+    /**
+     * Reindex async jm elasticsearch reindex task.
+     *
+     * @param reindexRequest   the reindex request
+     * @param progressInterval the progress interval
+     * @param progressListener the progress listener, null for none
+     * @return the jm elasticsearch reindex task
+     */
+    public JMElasticsearchReindexTask reindexAsync(ReindexRequest reindexRequest, TimeValue progressInterval,
+            Consumer<BulkByScrollTask.Status> progressListener) {
+        return new JMElasticsearchReindexTask(esClient, reindexRequest, progressInterval, progressListener);
+    }
+
+}
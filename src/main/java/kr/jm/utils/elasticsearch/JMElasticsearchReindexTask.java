@@ -0,0 +1,227 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.BulkByScrollTask;
+import org.elasticsearch.index.reindex.ReindexAction;
+import org.elasticsearch.index.reindex.ReindexRequest;
+import org.elasticsearch.index.reindex.RethrottleAction;
+import org.elasticsearch.index.reindex.RethrottleRequestBuilder;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.tasks.TaskInfo;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * The type Jm elasticsearch reindex task.
+ * <p>
+ * A reindex running on the cluster. The request is sent with its own {@code X-Opaque-Id} header, which is how the
+ * running task is found in the task list to poll its status and to rethrottle or cancel it. On an in-process node
+ * client the header does not reach the node, so the task is matched by its destination index instead.
+ */
+@Slf4j
+public class JMElasticsearchReindexTask {
+
+    private static final String OPAQUE_ID_PREFIX = "jm-reindex-";
+
+    private final Client esClient;
+    @Getter
+    private final String opaqueId;
+    private final String destIndex;
+    private final Consumer<BulkByScrollTask.Status> progressListener;
+    private final PlainActionFuture<BulkByScrollResponse> responseFuture = PlainActionFuture.newFuture();
+    private final Scheduler.Cancellable progressPoller;
+    private volatile TaskId taskId;
+    private volatile BulkByScrollTask.Status lastStatus;
+    private boolean completed;
+
+    /**
+     * Instantiates a new Jm elasticsearch reindex task.
+     *
+     * @param elasticsearchClient the elasticsearch client
+     * @param reindexRequest      the reindex request
+     * @param progressInterval    the progress interval
+     * @param progressListener    the progress listener, null for none
+     */
+    JMElasticsearchReindexTask(Client elasticsearchClient, ReindexRequest reindexRequest, TimeValue progressInterval,
+            Consumer<BulkByScrollTask.Status> progressListener) {
+        this.esClient = elasticsearchClient;
+        this.opaqueId = OPAQUE_ID_PREFIX + UUID.randomUUID();
+        this.destIndex = reindexRequest.getDestination().index();
+        this.progressListener = progressListener;
+        this.progressPoller = elasticsearchClient.threadPool()
+                .scheduleWithFixedDelay(this::pollProgress, progressInterval, ThreadPool.Names.GENERIC);
+        JMLog.info(log, "start", opaqueId, reindexRequest);
+        elasticsearchClient.filterWithHeader(Map.of(Task.X_OPAQUE_ID, opaqueId))
+                .execute(ReindexAction.INSTANCE, reindexRequest, buildResponseListener());
+    }
+
+    private ActionListener<BulkByScrollResponse> buildResponseListener() {
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(BulkByScrollResponse bulkByScrollResponse) {
+                progressPoller.cancel();
+                reportProgress(bulkByScrollResponse.getStatus(), true);
+                JMLog.info(log, "onResponse", opaqueId, bulkByScrollResponse);
+                responseFuture.onResponse(bulkByScrollResponse);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                progressPoller.cancel();
+                markCompleted();
+                JMException.handleException(log, e, "onFailure", opaqueId);
+                responseFuture.onFailure(e);
+            }
+        };
+    }
+
+    private void pollProgress() {
+        try {
+            List<TaskInfo> taskInfoList = esClient.admin().cluster().prepareListTasks()
+                    .setActions(ReindexAction.NAME).setDetailed(true).get().getTasks();
+            taskInfoList.stream().filter(taskInfo -> !taskInfo.getParentTaskId().isSet()).filter(this::isOwnTask)
+                    .findFirst().ifPresent(taskInfo -> {
+                        this.taskId = taskInfo.getTaskId();
+                        reportProgress(buildStatus(taskInfo, taskInfoList), false);
+                    });
+        } catch (Exception e) {
+            JMException.handleException(log, e, "pollProgress", opaqueId);
+        }
+    }
+
+    /**
+     * A sliced reindex reports only its finished slices, so the running slice tasks fill the empty slots in task id
+     * order, which is the order the slices were started in.
+     */
+    private BulkByScrollTask.Status buildStatus(TaskInfo rootTaskInfo, List<TaskInfo> taskInfoList) {
+        BulkByScrollTask.Status rootStatus = (BulkByScrollTask.Status) rootTaskInfo.getStatus();
+        if (rootStatus.getSliceStatuses().isEmpty())
+            return rootStatus;
+        List<BulkByScrollTask.StatusOrException> sliceStatusList = new ArrayList<>(rootStatus.getSliceStatuses());
+        Iterator<BulkByScrollTask.Status> runningSliceStatusIterator = taskInfoList.stream()
+                .filter(taskInfo -> rootTaskInfo.getTaskId().equals(taskInfo.getParentTaskId()))
+                .sorted(Comparator.comparingLong(TaskInfo::getId))
+                .map(taskInfo -> (BulkByScrollTask.Status) taskInfo.getStatus()).iterator();
+        for (int i = 0; i < sliceStatusList.size() && runningSliceStatusIterator.hasNext(); i++)
+            if (Objects.isNull(sliceStatusList.get(i)))
+                sliceStatusList.set(i, new BulkByScrollTask.StatusOrException(runningSliceStatusIterator.next()));
+        return new BulkByScrollTask.Status(sliceStatusList, rootStatus.getReasonCancelled());
+    }
+
+    private boolean isOwnTask(TaskInfo taskInfo) {
+        String taskOpaqueId = taskInfo.getHeaders().get(Task.X_OPAQUE_ID);
+        return Objects.isNull(taskOpaqueId) ? taskInfo.getDescription().contains(" to [" + destIndex + "]") :
+                opaqueId.equals(taskOpaqueId);
+    }
+
+    /**
+     * A poll can finish after the final status of the response was reported, so statuses are reported under the
+     * lock and dropped once the final one is in.
+     */
+    private synchronized void reportProgress(BulkByScrollTask.Status status, boolean finalStatus) {
+        if (completed)
+            return;
+        this.completed = finalStatus;
+        this.lastStatus = status;
+        if (Objects.nonNull(progressListener))
+            progressListener.accept(status);
+    }
+
+    private synchronized void markCompleted() {
+        this.completed = true;
+    }
+
+    /**
+     * Gets task id.
+     *
+     * @return the task id, empty until the running task has been found
+     */
+    public Optional<TaskId> getTaskId() {
+        if (Objects.isNull(taskId) && !isDone())
+            pollProgress();
+        return Optional.ofNullable(taskId);
+    }
+
+    /**
+     * Gets last status.
+     *
+     * @return the last reported status
+     */
+    public Optional<BulkByScrollTask.Status> getLastStatus() {
+        return Optional.ofNullable(lastStatus);
+    }
+
+    /**
+     * Rethrottle.
+     *
+     * @param requestsPerSecond the requests per second, {@link Float#POSITIVE_INFINITY} for unthrottled
+     */
+    public void rethrottle(float requestsPerSecond) {
+        TaskId runningTaskId = getRunningTaskId("rethrottle", requestsPerSecond);
+        JMLog.info(log, "rethrottle", opaqueId, runningTaskId, requestsPerSecond);
+        new RethrottleRequestBuilder(esClient, RethrottleAction.INSTANCE).setTaskId(runningTaskId)
+                .setRequestsPerSecond(requestsPerSecond).get().rethrowFailures("rethrottle");
+    }
+
+    /**
+     * Cancel.
+     */
+    public void cancel() {
+        TaskId runningTaskId = getRunningTaskId("cancel");
+        JMLog.info(log, "cancel", opaqueId, runningTaskId);
+        esClient.admin().cluster().prepareCancelTasks().setTaskId(runningTaskId).get().rethrowFailures("cancel");
+    }
+
+    private TaskId getRunningTaskId(String method, Object... params) {
+        return getTaskId().orElseThrow(() -> JMException.handleExceptionAndReturnRuntimeEx(log,
+                new IllegalStateException("no running reindex task - " + opaqueId), method, params));
+    }
+
+    /**
+     * Is done boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isDone() {
+        return responseFuture.isDone();
+    }
+
+    /**
+     * Gets response, waiting for the reindex to finish.
+     *
+     * @return the bulk by scroll response
+     */
+    public BulkByScrollResponse getResponse() {
+        return responseFuture.actionGet();
+    }
+
+    /**
+     * Gets response, waiting for the reindex to finish.
+     *
+     * @param timeout the timeout
+     * @return the bulk by scroll response
+     */
+    public BulkByScrollResponse getResponse(TimeValue timeout) {
+        return responseFuture.actionGet(timeout);
+    }
+
+}
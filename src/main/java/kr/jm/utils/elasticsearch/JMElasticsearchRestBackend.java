@@ -0,0 +1,184 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
+import org.elasticsearch.action.admin.indices.create.CreateIndexAction;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexAction;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsAction;
+import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequest;
+import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
+import org.elasticsearch.action.admin.indices.refresh.RefreshAction;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.bulk.BulkAction;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.delete.DeleteAction;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.get.GetAction;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.MultiGetAction;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.index.IndexAction;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.*;
+import org.elasticsearch.action.update.UpdateAction;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The type Jm elasticsearch rest backend.
+ * <p>
+ * Runs the actions the bulk, index, get, search and delete helpers send on the async REST high level client: bulk,
+ * index, update, delete, get, multi get, search, multi search, scroll and clear scroll, plus index create, exists,
+ * delete and refresh. Requests go out on a pooled async HTTP client whose I/O reactor threads and connections per
+ * node and in total are tunable; a request beyond the pool waits for a free connection rather than failing. Other
+ * actions, aliases, settings, stats and tasks among them, are left to the transport connection of the client.
+ */
+@Slf4j
+public class JMElasticsearchRestBackend implements JMElasticsearchBackend {
+
+    /**
+     * The constant DEFAULT_MAX_CONNECTIONS_PER_ROUTE, the low level rest client default.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = RestClientBuilder.DEFAULT_MAX_CONN_PER_ROUTE;
+    /**
+     * The constant DEFAULT_MAX_CONNECTIONS_TOTAL, the low level rest client default.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_TOTAL = RestClientBuilder.DEFAULT_MAX_CONN_TOTAL;
+
+    private static final Map<String, RestCall> REST_CALL_MAP = Map.ofEntries(
+            Map.entry(BulkAction.NAME, (restClient, request, listener) -> restClient
+                    .bulkAsync((BulkRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(IndexAction.NAME, (restClient, request, listener) -> restClient
+                    .indexAsync((IndexRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(UpdateAction.NAME, (restClient, request, listener) -> restClient
+                    .updateAsync((UpdateRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(DeleteAction.NAME, (restClient, request, listener) -> restClient
+                    .deleteAsync((DeleteRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(GetAction.NAME, (restClient, request, listener) -> restClient
+                    .getAsync((GetRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(MultiGetAction.NAME, (restClient, request, listener) -> restClient
+                    .mgetAsync((MultiGetRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(SearchAction.NAME, (restClient, request, listener) -> restClient
+                    .searchAsync((SearchRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(MultiSearchAction.NAME, (restClient, request, listener) -> restClient
+                    .msearchAsync((MultiSearchRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(SearchScrollAction.NAME, (restClient, request, listener) -> restClient
+                    .scrollAsync((SearchScrollRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(ClearScrollAction.NAME, (restClient, request, listener) -> restClient
+                    .clearScrollAsync((ClearScrollRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(CreateIndexAction.NAME, (restClient, request, listener) -> restClient.indices()
+                    .createAsync((CreateIndexRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(DeleteIndexAction.NAME, (restClient, request, listener) -> restClient.indices()
+                    .deleteAsync((DeleteIndexRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(RefreshAction.NAME, (restClient, request, listener) -> restClient.indices()
+                    .refreshAsync((RefreshRequest) request, RequestOptions.DEFAULT, cast(listener))),
+            Map.entry(IndicesExistsAction.NAME, (restClient, request, listener) -> {
+                IndicesExistsRequest indicesExistsRequest = (IndicesExistsRequest) request;
+                return restClient.indices().existsAsync(new GetIndexRequest(indicesExistsRequest.indices())
+                                .indicesOptions(indicesExistsRequest.indicesOptions()), RequestOptions.DEFAULT,
+                        ActionListener.map(cast(listener), IndicesExistsResponse::new));
+            }));
+
+    @Getter
+    private final RestHighLevelClient restHighLevelClient;
+
+    /**
+     * Instantiates a new Jm elasticsearch rest backend.
+     *
+     * @param restHighLevelClient the rest high level client, closed with this backend
+     */
+    public JMElasticsearchRestBackend(RestHighLevelClient restHighLevelClient) {
+        this.restHighLevelClient = restHighLevelClient;
+    }
+
+    /**
+     * Build jm elasticsearch rest backend with the default connection pool.
+     *
+     * @param elasticsearchHttpConnect the elasticsearch http connect, comma separated host:port pairs
+     * @return the jm elasticsearch rest backend
+     */
+    public static JMElasticsearchRestBackend build(String elasticsearchHttpConnect) {
+        return build(elasticsearchHttpConnect, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_TOTAL,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Build jm elasticsearch rest backend.
+     *
+     * @param elasticsearchHttpConnect the elasticsearch http connect, comma separated host:port pairs
+     * @param maxConnectionsPerRoute   the max connections per route, that is per node
+     * @param maxConnectionsTotal      the max connections total
+     * @param ioThreadCount            the io reactor thread count
+     * @return the jm elasticsearch rest backend
+     */
+    public static JMElasticsearchRestBackend build(String elasticsearchHttpConnect, int maxConnectionsPerRoute,
+            int maxConnectionsTotal, int ioThreadCount) {
+        JMLog.info(log, "build", elasticsearchHttpConnect, maxConnectionsPerRoute, maxConnectionsTotal,
+                ioThreadCount);
+        HttpHost[] httpHosts = Arrays.stream(elasticsearchHttpConnect.split(",")).map(String::trim)
+                .filter(hostPort -> !hostPort.isEmpty()).map(HttpHost::create).toArray(HttpHost[]::new);
+        return new JMElasticsearchRestBackend(new RestHighLevelClient(RestClient.builder(httpHosts)
+                .setHttpClientConfigCallback(httpAsyncClientBuilder -> httpAsyncClientBuilder
+                        .setMaxConnPerRoute(maxConnectionsPerRoute).setMaxConnTotal(maxConnectionsTotal)
+                        .setDefaultIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(ioThreadCount).build()))));
+    }
+
+    @Override
+    public boolean supports(ActionType<?> action) {
+        return REST_CALL_MAP.containsKey(action.name());
+    }
+
+    @Override
+    public <Request extends ActionRequest, Response extends ActionResponse> void execute(ActionType<Response> action,
+            Request request, ActionListener<Response> listener) {
+        RestCall restCall = REST_CALL_MAP.get(action.name());
+        if (Objects.isNull(restCall)) {
+            listener.onFailure(JMException.handleExceptionAndReturnRuntimeEx(log,
+                    new UnsupportedOperationException("unsupported action - " + action.name()), "execute",
+                    action.name()));
+            return;
+        }
+        try {
+            restCall.call(restHighLevelClient, request, listener);
+        } catch (Exception e) {
+            listener.onFailure(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        restHighLevelClient.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Response> ActionListener<Response> cast(ActionListener<?> listener) {
+        return (ActionListener<Response>) listener;
+    }
+
+    @FunctionalInterface
+    private interface RestCall {
+        Cancellable call(RestHighLevelClient restHighLevelClient, ActionRequest request,
+                ActionListener<?> listener);
+    }
+
+}
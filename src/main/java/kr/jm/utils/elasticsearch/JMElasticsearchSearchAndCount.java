@@ -2,29 +2,47 @@ package kr.jm.utils.elasticsearch;
 
 import kr.jm.utils.JMArrays;
 import kr.jm.utils.JMStream;
+import kr.jm.utils.exception.JMException;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollRequestBuilder;
+import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequestBuilder;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 
-import java.util.Objects;
+import java.util.*;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static java.util.stream.Collectors.toList;
+import static kr.jm.utils.elasticsearch.JMElasticsearchUtil.buildObjectBySourceRef;
 import static kr.jm.utils.elasticsearch.JMElasticsearchUtil.logRequestQueryAndReturn;
 import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
 
 /**
  * The type Jm elasticsearch search and count.
  */
+@Slf4j
 public class JMElasticsearchSearchAndCount {
 
     private static final int DefaultHitsCount = 10;
+    private static final TimeValue DefaultScrollKeepAlive = TimeValue.timeValueMinutes(1);
     @Getter
     @Setter
     private static long timeoutMillis = 5000;
@@ -32,6 +50,8 @@ public class JMElasticsearchSearchAndCount {
     @Getter
     @Setter
     private int defaultHitsCount;
+    private volatile JMElasticsearchMultiSearchBatcher multiSearchBatcher;
+    private volatile JMElasticsearchHedger searchHedger;
 
     /**
      * Instantiates a new Jm elasticsearch search and count.
@@ -43,6 +63,73 @@ public class JMElasticsearchSearchAndCount {
         this.defaultHitsCount = DefaultHitsCount;
     }
 
+    /**
+     * Sets multi search batching.
+     * <p>
+     * Searches arriving within {@code maxLingerMillis}, or up to {@code maxBatchSize} searches, are sent as a single
+     * multi search request.
+     *
+     * @param maxBatchSize    the max batch size
+     * @param maxLingerMillis the max linger millis
+     */
+    public void setMultiSearchBatching(int maxBatchSize, long maxLingerMillis) {
+        JMElasticsearchMultiSearchBatcher oldMultiSearchBatcher = this.multiSearchBatcher;
+        this.multiSearchBatcher = new JMElasticsearchMultiSearchBatcher(esClient, maxBatchSize, maxLingerMillis);
+        Optional.ofNullable(oldMultiSearchBatcher).ifPresent(JMElasticsearchMultiSearchBatcher::close);
+    }
+
+    /**
+     * Gets multi search batcher.
+     *
+     * @return the multi search batcher
+     */
+    public Optional<JMElasticsearchMultiSearchBatcher> getMultiSearchBatcher() {
+        return Optional.ofNullable(multiSearchBatcher);
+    }
+
+    /**
+     * Close multi search batching.
+     */
+    public void closeMultiSearchBatching() {
+        JMElasticsearchMultiSearchBatcher oldMultiSearchBatcher = this.multiSearchBatcher;
+        this.multiSearchBatcher = null;
+        Optional.ofNullable(oldMultiSearchBatcher).ifPresent(JMElasticsearchMultiSearchBatcher::close);
+    }
+
+    /**
+     * Sets search hedging.
+     * <p>
+     * Searches and counts not answered within {@code latencyPercentile} of recent latencies are duplicated with a
+     * different preference, for at most {@code maxHedgeRatio} of all searches. Searches with a preference of their
+     * own are never hedged, so their shard selection and routing are kept.
+     *
+     * @param latencyPercentile the latency percentile
+     * @param maxHedgeRatio     the max hedge ratio
+     */
+    public void setSearchHedging(double latencyPercentile, double maxHedgeRatio) {
+        JMElasticsearchHedger oldSearchHedger = this.searchHedger;
+        this.searchHedger = new JMElasticsearchHedger("searchHedger", latencyPercentile, maxHedgeRatio);
+        Optional.ofNullable(oldSearchHedger).ifPresent(JMElasticsearchHedger::close);
+    }
+
+    /**
+     * Gets search hedger.
+     *
+     * @return the search hedger
+     */
+    public Optional<JMElasticsearchHedger> getSearchHedger() {
+        return Optional.ofNullable(searchHedger);
+    }
+
+    /**
+     * Close search hedging.
+     */
+    public void closeSearchHedging() {
+        JMElasticsearchHedger oldSearchHedger = this.searchHedger;
+        this.searchHedger = null;
+        Optional.ofNullable(oldSearchHedger).ifPresent(JMElasticsearchHedger::close);
+    }
+
     /**
      * Search with target count search response.
      *
@@ -540,7 +627,39 @@ public class JMElasticsearchSearchAndCount {
 
     private SearchResponse searchQuery(String method, SearchRequestBuilder searchRequestBuilder, long timeoutMillis) {
         searchRequestBuilder.setTimeout(timeValueMillis(timeoutMillis));
-        return logRequestQueryAndReturn(method, searchRequestBuilder, searchRequestBuilder.execute(), timeoutMillis);
+        return logRequestQueryAndReturn(method, searchRequestBuilder, execute(searchRequestBuilder), timeoutMillis);
+    }
+
+    private ActionFuture<SearchResponse> execute(SearchRequestBuilder searchRequestBuilder) {
+        SearchRequest searchRequest = searchRequestBuilder.request();
+        PlainActionFuture<SearchResponse> searchResponseFuture = PlainActionFuture.newFuture();
+        JMElasticsearchHedger searchHedger = this.searchHedger;
+        if (Objects.isNull(searchHedger) || Objects.nonNull(searchRequest.preference()))
+            submit(searchRequest, searchResponseFuture);
+        else
+            searchHedger.execute(listener -> submit(searchRequest, listener),
+                    (preference, listener) -> submit(new SearchRequest(searchRequest).preference(preference),
+                            listener), searchResponseFuture);
+        return searchResponseFuture;
+    }
+
+    private void submit(SearchRequest searchRequest, ActionListener<SearchResponse> searchResponseListener) {
+        JMElasticsearchMultiSearchBatcher multiSearchBatcher = this.multiSearchBatcher;
+        if (Objects.isNull(multiSearchBatcher))
+            esClient.search(searchRequest, searchResponseListener);
+        else
+            multiSearchBatcher.submit(searchRequest, searchResponseListener);
+    }
+
+    /**
+     * Search query async action future.
+     *
+     * @param searchRequestBuilder the search request builder
+     * @return the action future
+     */
+    public ActionFuture<SearchResponse> searchQueryAsync(SearchRequestBuilder searchRequestBuilder) {
+        searchRequestBuilder.setTimeout(timeValueMillis(timeoutMillis));
+        return execute(JMElasticsearchUtil.logRequestQuery("searchQueryAsync", searchRequestBuilder));
     }
 
     /**
@@ -554,6 +673,210 @@ public class JMElasticsearchSearchAndCount {
         return searchQuery("searchQuery", searchRequestBuilder, timeoutMillis);
     }
 
+    /**
+     * Search all list, reading each hit source straight into the type.
+     *
+     * @param <T>     the type parameter
+     * @param type    the type
+     * @param indices the indices
+     * @return the list
+     */
+    public <T> List<T> searchAll(Class<T> type, String... indices) {
+        return searchAll(type, indices, null);
+    }
+
+    /**
+     * Search all list, reading each hit source straight into the type.
+     *
+     * @param <T>                the type parameter
+     * @param type               the type
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @return the list
+     */
+    public <T> List<T> searchAll(Class<T> type, String[] indices, QueryBuilder filterQueryBuilder) {
+        return searchQuery(type, getSearchRequestBuilderWithMatchAll(false, indices, filterQueryBuilder));
+    }
+
+    /**
+     * Search all with target count list, reading each hit source straight into the type.
+     *
+     * @param <T>                the type parameter
+     * @param type               the type
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @return the list
+     */
+    public <T> List<T> searchAllWithTargetCount(Class<T> type, String[] indices, QueryBuilder filterQueryBuilder) {
+        return buildObjectStream(type, searchAllWithTargetCount(indices, filterQueryBuilder)).collect(toList());
+    }
+
+    /**
+     * Search all search response with the projection.
+     *
+     * @param projection         the projection
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @return the search response
+     */
+    public SearchResponse searchAll(JMElasticsearchProjection projection, String[] indices,
+            QueryBuilder filterQueryBuilder) {
+        return searchQuery(projection.apply(getSearchRequestBuilderWithMatchAll(false, indices, filterQueryBuilder)));
+    }
+
+    /**
+     * Search all with target count search response with the projection.
+     *
+     * @param projection         the projection
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @return the search response
+     */
+    public SearchResponse searchAllWithTargetCount(JMElasticsearchProjection projection, String[] indices,
+            QueryBuilder filterQueryBuilder) {
+        return searchWithTargetCount(
+                projection.apply(getSearchRequestBuilderWithMatchAll(false, indices, filterQueryBuilder)));
+    }
+
+    /**
+     * Search query list, reading each hit source straight into the type.
+     *
+     * @param <T>                  the type parameter
+     * @param type                 the type
+     * @param searchRequestBuilder the search request builder
+     * @return the list
+     */
+    public <T> List<T> searchQuery(Class<T> type, SearchRequestBuilder searchRequestBuilder) {
+        return searchQueryAsStream(type, searchRequestBuilder).collect(toList());
+    }
+
+    /**
+     * Search query as stream stream, reading each hit source into the type as the stream is consumed.
+     *
+     * @param <T>                  the type parameter
+     * @param type                 the type
+     * @param searchRequestBuilder the search request builder
+     * @return the stream
+     */
+    public <T> Stream<T> searchQueryAsStream(Class<T> type, SearchRequestBuilder searchRequestBuilder) {
+        return buildObjectStream(type, searchQuery(searchRequestBuilder));
+    }
+
+    private <T> Stream<T> buildObjectStream(Class<T> type, SearchResponse searchResponse) {
+        return Arrays.stream(searchResponse.getHits().getHits())
+                .map(searchHit -> buildObjectBySourceRef(searchHit.getSourceRef(), type));
+    }
+
+    /**
+     * Stream all stream, scrolling through every matching hit in batches and reading each hit source into the type.
+     *
+     * @param <T>                the type parameter
+     * @param type               the type
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @param batchSize          the hit count per scroll batch
+     * @return the stream, to be closed when not consumed to the end
+     */
+    public <T> Stream<T> streamAll(Class<T> type, String[] indices, QueryBuilder filterQueryBuilder, int batchSize) {
+        return streamAll(type, new JMElasticsearchProjection(), indices, filterQueryBuilder, batchSize);
+    }
+
+    /**
+     * Stream all stream with the projection, reading each filtered hit source into the type.
+     *
+     * @param <T>                the type parameter
+     * @param type               the type
+     * @param projection         the projection, with the source fetched
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @param batchSize          the hit count per scroll batch
+     * @return the stream, to be closed when not consumed to the end
+     */
+    public <T> Stream<T> streamAll(Class<T> type, JMElasticsearchProjection projection, String[] indices,
+            QueryBuilder filterQueryBuilder, int batchSize) {
+        return streamAllHits(projection, indices, filterQueryBuilder, batchSize)
+                .map(searchHit -> buildObjectBySourceRef(searchHit.getSourceRef(), type));
+    }
+
+    /**
+     * Stream all hits stream, scrolling through every matching hit in batches in index order. Only the current
+     * batch is held, and the scroll is cleared when the stream ends or is closed.
+     *
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @param batchSize          the hit count per scroll batch
+     * @return the stream, to be closed when not consumed to the end
+     */
+    public Stream<SearchHit> streamAllHits(String[] indices, QueryBuilder filterQueryBuilder, int batchSize) {
+        return streamAllHits(new JMElasticsearchProjection(), indices, filterQueryBuilder, batchSize);
+    }
+
+    /**
+     * Stream all hits stream with the projection, scrolling through every matching hit in batches in index order.
+     *
+     * @param projection         the projection
+     * @param indices            the indices
+     * @param filterQueryBuilder the filter query builder
+     * @param batchSize          the hit count per scroll batch
+     * @return the stream, to be closed when not consumed to the end
+     */
+    public Stream<SearchHit> streamAllHits(JMElasticsearchProjection projection, String[] indices,
+            QueryBuilder filterQueryBuilder, int batchSize) {
+        ScrollPager scrollPager = new ScrollPager(projection.apply(getSearchRequestBuilderWithMatchAll(false,
+                indices, filterQueryBuilder).setSearchType(SearchType.QUERY_THEN_FETCH).setSize(batchSize)
+                .addSort(FieldSortBuilder.DOC_FIELD_NAME, SortOrder.ASC).setScroll(DefaultScrollKeepAlive)));
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<SearchHit[]>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super SearchHit[]> action) {
+                return scrollPager.nextHits().map(searchHits -> {
+                    action.accept(searchHits);
+                    return true;
+                }).orElse(false);
+            }
+        }, false).onClose(scrollPager::clearScroll).flatMap(Arrays::stream);
+    }
+
+    private class ScrollPager {
+        private SearchRequestBuilder firstSearchRequestBuilder;
+        private String scrollId;
+
+        private ScrollPager(SearchRequestBuilder firstSearchRequestBuilder) {
+            this.firstSearchRequestBuilder = firstSearchRequestBuilder;
+        }
+
+        private synchronized Optional<SearchHit[]> nextHits() {
+            SearchResponse searchResponse;
+            if (Objects.nonNull(firstSearchRequestBuilder)) {
+                searchResponse = logRequestQueryAndReturn("streamAllHits", firstSearchRequestBuilder,
+                        firstSearchRequestBuilder.execute());
+                this.firstSearchRequestBuilder = null;
+            } else if (Objects.nonNull(scrollId)) {
+                SearchScrollRequestBuilder searchScrollRequestBuilder =
+                        esClient.prepareSearchScroll(scrollId).setScroll(DefaultScrollKeepAlive);
+                searchResponse = logRequestQueryAndReturn("streamAllHits", searchScrollRequestBuilder,
+                        searchScrollRequestBuilder.execute());
+            } else
+                return Optional.empty();
+            this.scrollId = searchResponse.getScrollId();
+            SearchHit[] searchHits = searchResponse.getHits().getHits();
+            if (searchHits.length > 0)
+                return Optional.of(searchHits);
+            clearScroll();
+            return Optional.empty();
+        }
+
+        private synchronized void clearScroll() {
+            this.firstSearchRequestBuilder = null;
+            if (Objects.isNull(scrollId))
+                return;
+            ClearScrollRequestBuilder clearScrollRequestBuilder = esClient.prepareClearScroll().addScrollId(scrollId);
+            this.scrollId = null;
+            clearScrollRequestBuilder.execute(ActionListener.wrap(clearScrollResponse -> {},
+                    e -> JMException.handleException(log, e, "clearScroll", clearScrollRequestBuilder)));
+        }
+    }
+
     /**
      * Count query long.
      *
@@ -0,0 +1,303 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.ResourceAlreadyExistsException;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.action.admin.indices.stats.IndexStats;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.settings.Settings;
+
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Jm elasticsearch time routing writer.
+ * <p>
+ * Sends documents through the client's bulk processor to the index of the time bucket their timestamp falls in, such
+ * as {@code 'logs-'yyyy.MM.dd} by {@link ChronoUnit#DAYS}. Buckets are kept by start time, so a document only costs a
+ * map lookup; the index name is formatted and the index created, with the configured settings and mapping, once per
+ * bucket, by the first thread to reach it while others wait for that bucket only. Documents without the timestamp
+ * field go to the bucket of the current time. With a rollover limit set, bucket indices get a {@code -000001}
+ * generation suffix and the next generation is created once the docs or source bytes sent by this writer reach the
+ * limit; the existing generations are read once per bucket on first use. The source bytes of documents already in
+ * that latest generation are not known, so its primary store size stands in for them and it may end up somewhat
+ * past the byte limit.
+ */
+@Slf4j
+public class JMElasticsearchTimeRoutingWriter {
+
+    private static final Set<ChronoUnit> SUPPORTED_BUCKET_UNITS =
+            EnumSet.of(ChronoUnit.HOURS, ChronoUnit.DAYS, ChronoUnit.MONTHS, ChronoUnit.YEARS);
+
+    private final JMElasticsearchClient jmESClient;
+    @Getter
+    private final String timestampField;
+    private final DateTimeFormatter indexNameFormatter;
+    private final ChronoUnit bucketUnit;
+    private final ZoneId zoneId;
+    private final ConcurrentSkipListMap<Long, TimeBucket> timeBucketMap = new ConcurrentSkipListMap<>();
+    private final Map<Long, CompletableFuture<TimeBucket>> timeBucketFutureMap = new ConcurrentHashMap<>();
+    private final Set<String> createdIndexSet = new CopyOnWriteArraySet<>();
+    @Getter
+    @Setter
+    private volatile Settings indexSettings = Settings.EMPTY;
+    @Getter
+    @Setter
+    private volatile Map<String, Object> mapping;
+    @Getter
+    @Setter
+    private volatile long rolloverMaxDocs;
+    @Getter
+    @Setter
+    private volatile long rolloverMaxSourceBytes;
+
+    /**
+     * Instantiates a new Jm elasticsearch time routing writer.
+     *
+     * @param jmElasticsearchClient the jm elasticsearch client
+     * @param indexPattern          the index pattern, a {@link DateTimeFormatter} pattern such as 'logs-'yyyy.MM.dd
+     * @param bucketUnit            the bucket unit, one of hours, days, months or years
+     * @param zoneId                the zone id buckets and index names are computed in
+     * @param timestampField        the timestamp field, epoch millis, a date or an ISO-8601 string
+     */
+    public JMElasticsearchTimeRoutingWriter(JMElasticsearchClient jmElasticsearchClient, String indexPattern,
+            ChronoUnit bucketUnit, ZoneId zoneId, String timestampField) {
+        if (!SUPPORTED_BUCKET_UNITS.contains(bucketUnit))
+            throw JMException.handleExceptionAndReturnRuntimeEx(log,
+                    new IllegalArgumentException("unsupported bucket unit - " + bucketUnit),
+                    "JMElasticsearchTimeRoutingWriter", indexPattern, bucketUnit);
+        this.jmESClient = jmElasticsearchClient;
+        this.indexNameFormatter = DateTimeFormatter.ofPattern(indexPattern).withZone(zoneId);
+        this.bucketUnit = bucketUnit;
+        this.zoneId = zoneId;
+        this.timestampField = timestampField;
+    }
+
+    /**
+     * Send.
+     *
+     * @param source the source
+     * @return the index the source is routed to
+     */
+    public String send(Map<String, Object> source) {
+        return send(extractTimestampMillis(source.get(timestampField)), source);
+    }
+
+    /**
+     * Send with object mapper.
+     *
+     * @param sourceObject the source object
+     * @return the index the source is routed to
+     */
+    public String sendWithObjectMapper(Object sourceObject) {
+        return send(JMElasticsearchUtil.buildSourceByJsonMapper(sourceObject));
+    }
+
+    /**
+     * Send.
+     *
+     * @param timestampMillis the timestamp millis
+     * @param source          the source
+     * @return the index the source is routed to
+     */
+    public String send(long timestampMillis, Map<String, Object> source) {
+        TimeBucket timeBucket = getTimeBucket(timestampMillis);
+        IndexRequest indexRequest = new IndexRequest().source(source);
+        String index = timeBucket.account(indexRequest.source().length());
+        jmESClient.sendWithBulkProcessor(indexRequest.index(index));
+        return index;
+    }
+
+    /**
+     * Resolve index string.
+     *
+     * @param timestampMillis the timestamp millis
+     * @return the index currently written for the timestamp
+     */
+    public String resolveIndex(long timestampMillis) {
+        return getTimeBucket(timestampMillis).currentIndex;
+    }
+
+    /**
+     * Gets created index set.
+     *
+     * @return the indices this writer has created
+     */
+    public Set<String> getCreatedIndexSet() {
+        return Collections.unmodifiableSet(createdIndexSet);
+    }
+
+    private TimeBucket getTimeBucket(long timestampMillis) {
+        Map.Entry<Long, TimeBucket> timeBucketEntry = timeBucketMap.floorEntry(timestampMillis);
+        return Objects.nonNull(timeBucketEntry) && timestampMillis < timeBucketEntry.getValue().endMillis ?
+                timeBucketEntry.getValue() : createTimeBucket(timestampMillis);
+    }
+
+    private TimeBucket createTimeBucket(long timestampMillis) {
+        ZonedDateTime startDateTime = truncateToBucket(Instant.ofEpochMilli(timestampMillis).atZone(zoneId));
+        long startMillis = startDateTime.toInstant().toEpochMilli();
+        CompletableFuture<TimeBucket> newTimeBucketFuture = new CompletableFuture<>();
+        CompletableFuture<TimeBucket> timeBucketFuture =
+                timeBucketFutureMap.putIfAbsent(startMillis, newTimeBucketFuture);
+        if (Objects.nonNull(timeBucketFuture))
+            return joinTimeBucket(timeBucketFuture);
+        try {
+            TimeBucket timeBucket = new TimeBucket(indexNameFormatter.format(startDateTime),
+                    startDateTime.plus(1, bucketUnit).toInstant().toEpochMilli());
+            timeBucketMap.put(startMillis, timeBucket);
+            newTimeBucketFuture.complete(timeBucket);
+            return timeBucket;
+        } catch (RuntimeException e) {
+            timeBucketFutureMap.remove(startMillis, newTimeBucketFuture);
+            newTimeBucketFuture.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private TimeBucket joinTimeBucket(CompletableFuture<TimeBucket> timeBucketFuture) {
+        try {
+            return timeBucketFuture.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private ZonedDateTime truncateToBucket(ZonedDateTime dateTime) {
+        switch (bucketUnit) {
+            case YEARS:
+                return dateTime.withDayOfYear(1).truncatedTo(ChronoUnit.DAYS);
+            case MONTHS:
+                return dateTime.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+            default:
+                return dateTime.truncatedTo(bucketUnit);
+        }
+    }
+
+    private long extractTimestampMillis(Object timestamp) {
+        if (timestamp instanceof Number)
+            return ((Number) timestamp).longValue();
+        if (timestamp instanceof Date)
+            return ((Date) timestamp).getTime();
+        if (timestamp instanceof Instant)
+            return ((Instant) timestamp).toEpochMilli();
+        if (timestamp instanceof TemporalAccessor)
+            return Instant.from((TemporalAccessor) timestamp).toEpochMilli();
+        if (timestamp instanceof String)
+            return parseTimestampMillis((String) timestamp);
+        return System.currentTimeMillis();
+    }
+
+    private long parseTimestampMillis(String timestamp) {
+        try {
+            return timestamp.chars().allMatch(Character::isDigit) ? Long.parseLong(timestamp) :
+                    DateTimeFormatter.ISO_DATE_TIME.withZone(zoneId).parse(timestamp, Instant::from).toEpochMilli();
+        } catch (DateTimeException | NumberFormatException e) {
+            throw JMException.handleExceptionAndReturnRuntimeEx(log, e, "parseTimestampMillis", timestamp);
+        }
+    }
+
+    private void createIndex(String index) {
+        CreateIndexRequestBuilder createIndexRequestBuilder =
+                jmESClient.admin().indices().prepareCreate(index).setSettings(indexSettings);
+        Optional.ofNullable(mapping).ifPresent(mapping -> createIndexRequestBuilder.addMapping("_doc", mapping));
+        try {
+            JMElasticsearchUtil.logRequestQueryAndReturn("createIndex", createIndexRequestBuilder,
+                    createIndexRequestBuilder.execute());
+            createdIndexSet.add(index);
+        } catch (RuntimeException e) {
+            if (!(ExceptionsHelper.unwrapCause(e) instanceof ResourceAlreadyExistsException))
+                throw e;
+        }
+    }
+
+    private class TimeBucket {
+        private final String bucketName;
+        private final long endMillis;
+        private final AtomicLong docCount = new AtomicLong();
+        private final AtomicLong sourceBytes = new AtomicLong();
+        private volatile int generation;
+        private volatile String currentIndex;
+
+        private TimeBucket(String bucketName, long endMillis) {
+            this.bucketName = bucketName;
+            this.endMillis = endMillis;
+            if (isRolloverEnabled())
+                openLatestGeneration();
+            else
+                this.currentIndex = bucketName;
+            if (!jmESClient.isExists(currentIndex))
+                createIndex(currentIndex);
+            JMLog.info(log, "TimeBucket", bucketName, currentIndex, docCount, sourceBytes);
+        }
+
+        private void openLatestGeneration() {
+            String generationPrefix = bucketName + "-";
+            Map<String, IndexStats> indexStatsMap = jmESClient.admin().indices().prepareStats(generationPrefix + "*")
+                    .clear().setDocs(true).get().getIndices();
+            Optional<String> latestIndex = indexStatsMap.keySet().stream()
+                    .filter(index -> index.substring(generationPrefix.length()).matches("\\d+"))
+                    .max(Comparator.comparingInt(index -> parseGeneration(generationPrefix, index)));
+            this.generation = latestIndex.map(index -> parseGeneration(generationPrefix, index)).orElse(1);
+            this.currentIndex = buildGenerationIndex(generation);
+            latestIndex.map(indexStatsMap::get).map(indexStats -> indexStats.getPrimaries().getDocs())
+                    .ifPresent(docsStats -> {
+                        docCount.set(docsStats.getCount());
+                        sourceBytes.set(docsStats.getTotalSizeInBytes());
+                    });
+        }
+
+        private int parseGeneration(String generationPrefix, String index) {
+            return Integer.parseInt(index.substring(generationPrefix.length()));
+        }
+
+        private String buildGenerationIndex(int generation) {
+            return String.format("%s-%06d", bucketName, generation);
+        }
+
+        private boolean isRolloverEnabled() {
+            return rolloverMaxDocs > 0 || rolloverMaxSourceBytes > 0;
+        }
+
+        private String account(long bytes) {
+            if (!isRolloverEnabled())
+                return currentIndex;
+            return isOverLimit(docCount.incrementAndGet(), sourceBytes.addAndGet(bytes)) ? rollover(bytes) :
+                    currentIndex;
+        }
+
+        private boolean isOverLimit(long docs, long bytes) {
+            return (rolloverMaxDocs > 0 && docs > rolloverMaxDocs) ||
+                    (rolloverMaxSourceBytes > 0 && bytes > rolloverMaxSourceBytes);
+        }
+
+        private synchronized String rollover(long bytes) {
+            if (isOverLimit(docCount.get(), sourceBytes.get())) {
+                String nextIndex = buildGenerationIndex(generation + 1);
+                createIndex(nextIndex);
+                this.generation++;
+                this.currentIndex = nextIndex;
+                docCount.set(0);
+                sourceBytes.set(0);
+                JMLog.info(log, "rollover", bucketName, currentIndex);
+            }
+            docCount.incrementAndGet();
+            sourceBytes.addAndGet(bytes);
+            return currentIndex;
+        }
+    }
+
+}
@@ -0,0 +1,349 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListenerResponseHandler;
+import org.elasticsearch.action.admin.cluster.node.liveness.LivenessRequest;
+import org.elasticsearch.action.admin.cluster.node.liveness.LivenessResponse;
+import org.elasticsearch.action.admin.cluster.node.liveness.TransportLivenessAction;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.inject.Injector;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.ConnectionProfile;
+import org.elasticsearch.transport.Transport;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportService;
+
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The type Jm elasticsearch transport address manager.
+ * <p>
+ * Resolves the {@code host:port} list of a connect string in parallel under one timeout and adds the resolved
+ * addresses to the client in a single call. A host that does not resolve in time is added once its pending lookup
+ * completes; if that lookup fails the host stays out until health probing, which resolves it again on every round,
+ * so without probing it is never added. The probe sends a transport liveness request to every node over a probe
+ * connection of its own, keeps a moving average of the round trip and takes nodes out of rotation after the
+ * configured consecutive failures, adding them back once they recover. Taking nodes out that are slower than the
+ * fastest node by more than a latency ratio plus slack is opt-in, as the ratio is infinite by default; on a cluster
+ * spread over zones a finite ratio would send all traffic to the nearest nodes. A node with no successful probe yet
+ * is judged by its failures alone. The transport client picks among the nodes in rotation round robin, so latency
+ * weighting works by admission rather than by per-request choice. Nodes found by sniffing are managed by the client
+ * itself. Probes reach a node through the transport service the client keeps in its injector, so probing is refused
+ * at start on a client version without it.
+ */
+@Slf4j
+public class JMElasticsearchTransportAddressManager {
+
+    /**
+     * The constant DEFAULT_RESOLVE_TIMEOUT_MILLIS.
+     */
+    public static final long DEFAULT_RESOLVE_TIMEOUT_MILLIS = 5000;
+    private static final double LATENCY_MOVING_AVERAGE_WEIGHT = 0.3;
+    private static final String PROBE_NODE_ID_PREFIX = "#jm-probe#";
+
+    private final TransportClient transportClient;
+    private TransportService transportService;
+    private final Executor executor;
+    private final List<NodeHealth> nodeHealthList;
+    private Scheduler.Cancellable healthProber;
+    @Getter
+    @Setter
+    private volatile long probeTimeoutMillis = 1000;
+    @Getter
+    @Setter
+    private volatile int maxConsecutiveFailures = 2;
+    @Getter
+    @Setter
+    private volatile double maxLatencyRatio = Double.POSITIVE_INFINITY;
+    @Getter
+    @Setter
+    private volatile double latencySlackMillis = 5;
+
+    /**
+     * Instantiates a new Jm elasticsearch transport address manager.
+     *
+     * @param transportClient      the transport client
+     * @param elasticsearchConnect the elasticsearch connect, comma separated host:port pairs
+     * @param resolveTimeoutMillis the resolve timeout millis for all hosts together
+     */
+    JMElasticsearchTransportAddressManager(TransportClient transportClient, String elasticsearchConnect,
+            long resolveTimeoutMillis) {
+        this.transportClient = transportClient;
+        this.executor = transportClient.threadPool().generic();
+        this.nodeHealthList = Arrays.stream(elasticsearchConnect.split(",")).map(String::trim)
+                .filter(hostPort -> !hostPort.isEmpty()).map(NodeHealth::new).collect(Collectors.toList());
+        long startNanos = System.nanoTime();
+        Map<NodeHealth, CompletableFuture<Void>> resolveFutureMap = resolveAll(nodeHealthList, resolveTimeoutMillis);
+        List<NodeHealth> resolvedNodeHealthList =
+                nodeHealthList.stream().filter(nodeHealth -> Objects.nonNull(nodeHealth.transportAddress))
+                        .collect(Collectors.toList());
+        if (resolvedNodeHealthList.isEmpty())
+            throw JMException.handleExceptionAndReturnRuntimeEx(log,
+                    new IllegalArgumentException("no resolvable transport address"),
+                    "JMElasticsearchTransportAddressManager", elasticsearchConnect, resolveTimeoutMillis);
+        resolvedNodeHealthList.forEach(nodeHealth -> nodeHealth.inRotation = true);
+        transportClient.addTransportAddresses(resolvedNodeHealthList.stream()
+                .map(nodeHealth -> nodeHealth.transportAddress).toArray(TransportAddress[]::new));
+        JMLog.info(log, "JMElasticsearchTransportAddressManager", elasticsearchConnect,
+                resolvedNodeHealthList.size(), nodeHealthList.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        resolveFutureMap.forEach((nodeHealth, resolveFuture) -> {
+            if (Objects.isNull(nodeHealth.transportAddress))
+                resolveFuture.thenRun(() -> addLateResolved(nodeHealth));
+        });
+    }
+
+    private Map<NodeHealth, CompletableFuture<Void>> resolveAll(List<NodeHealth> nodeHealthList, long timeoutMillis) {
+        Map<NodeHealth, CompletableFuture<Void>> resolveFutureMap = new LinkedHashMap<>();
+        nodeHealthList.forEach(nodeHealth -> resolveFutureMap
+                .put(nodeHealth, CompletableFuture.runAsync(nodeHealth::resolve, executor)));
+        try {
+            CompletableFuture.allOf(resolveFutureMap.values().toArray(CompletableFuture[]::new))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            JMLog.warn(log, "resolveAll", nodeHealthList.stream()
+                    .filter(nodeHealth -> Objects.isNull(nodeHealth.transportAddress)).map(NodeHealth::getHostPort)
+                    .collect(Collectors.toList()), timeoutMillis);
+        }
+        return resolveFutureMap;
+    }
+
+    private synchronized void addLateResolved(NodeHealth nodeHealth) {
+        if (Objects.isNull(nodeHealth.transportAddress)) {
+            JMLog.warn(log, "addLateResolved", nodeHealth.hostPort, "not resolvable, left to health probing");
+            return;
+        }
+        if (nodeHealth.inRotation || isHealthProbing())
+            return;
+        transportClient.addTransportAddress(nodeHealth.transportAddress);
+        nodeHealth.inRotation = true;
+        JMLog.info(log, "addLateResolved", nodeHealth);
+    }
+
+    private synchronized TransportService getTransportService() {
+        if (Objects.isNull(transportService))
+            this.transportService = lookupTransportService(transportClient);
+        return transportService;
+    }
+
+    /**
+     * The transport client keeps its transport service to itself, so it is taken from the client's injector, which is
+     * how probes reach a node directly instead of a node the client picks.
+     */
+    private static TransportService lookupTransportService(TransportClient transportClient) {
+        try {
+            Field injectorField = TransportClient.class.getDeclaredField("injector");
+            injectorField.setAccessible(true);
+            return ((Injector) injectorField.get(transportClient)).getInstance(TransportService.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw JMException.handleExceptionAndReturnRuntimeEx(log, new UnsupportedOperationException(
+                    "health probing needs the transport service of the transport client, not reachable in " +
+                            Version.CURRENT, e), "lookupTransportService");
+        }
+    }
+
+    /**
+     * Start health probing, failing right away when the transport service to probe through is not reachable.
+     *
+     * @param probeIntervalMillis the probe interval millis
+     */
+    public synchronized void startHealthProbing(long probeIntervalMillis) {
+        getTransportService();
+        stopHealthProbing();
+        JMLog.info(log, "startHealthProbing", probeIntervalMillis, probeTimeoutMillis, maxConsecutiveFailures,
+                maxLatencyRatio, latencySlackMillis);
+        this.healthProber = transportClient.threadPool().scheduleWithFixedDelay(this::probe,
+                TimeValue.timeValueMillis(probeIntervalMillis), ThreadPool.Names.GENERIC);
+    }
+
+    /**
+     * Stop health probing.
+     */
+    public synchronized void stopHealthProbing() {
+        if (Objects.nonNull(healthProber)) {
+            healthProber.cancel();
+            this.healthProber = null;
+        }
+        nodeHealthList.forEach(NodeHealth::closeProbeConnection);
+    }
+
+    /**
+     * Is health probing boolean.
+     *
+     * @return the boolean
+     */
+    public synchronized boolean isHealthProbing() {
+        return Objects.nonNull(healthProber);
+    }
+
+    /**
+     * Probe every node once and update the rotation.
+     */
+    public synchronized void probe() {
+        try {
+            List<NodeHealth> unresolvedNodeHealthList = nodeHealthList.stream()
+                    .filter(nodeHealth -> Objects.isNull(nodeHealth.transportAddress)).collect(Collectors.toList());
+            if (!unresolvedNodeHealthList.isEmpty())
+                resolveAll(unresolvedNodeHealthList, probeTimeoutMillis);
+            TransportService transportService = getTransportService();
+            long timeoutMillis = probeTimeoutMillis;
+            CompletableFuture.allOf(nodeHealthList.stream()
+                    .filter(nodeHealth -> Objects.nonNull(nodeHealth.transportAddress))
+                    .map(nodeHealth -> CompletableFuture
+                            .runAsync(() -> nodeHealth.probe(transportService, timeoutMillis), executor))
+                    .toArray(CompletableFuture[]::new)).get(2L * timeoutMillis, TimeUnit.MILLISECONDS);
+            updateRotation();
+        } catch (Exception e) {
+            JMException.handleException(log, e, "probe");
+        }
+    }
+
+    private void updateRotation() {
+        int maxConsecutiveFailures = this.maxConsecutiveFailures;
+        List<NodeHealth> healthyNodeHealthList = nodeHealthList.stream()
+                .filter(nodeHealth -> nodeHealth.isHealthy(maxConsecutiveFailures)).collect(Collectors.toList());
+        if (healthyNodeHealthList.isEmpty()) {
+            JMLog.warn(log, "updateRotation", "no healthy node, rotation kept", nodeHealthList);
+            return;
+        }
+        double maxLatencyRatio = this.maxLatencyRatio;
+        double maxLatencyMillis = Double.isInfinite(maxLatencyRatio) ? Double.POSITIVE_INFINITY :
+                healthyNodeHealthList.stream().mapToDouble(NodeHealth::getLatencyMillis)
+                        .filter(latencyMillis -> !Double.isNaN(latencyMillis)).min().orElse(0) * maxLatencyRatio +
+                        latencySlackMillis;
+        for (NodeHealth nodeHealth : nodeHealthList) {
+            boolean inRotation = nodeHealth.isHealthy(maxConsecutiveFailures) &&
+                    !(nodeHealth.getLatencyMillis() > maxLatencyMillis);
+            if (inRotation == nodeHealth.inRotation)
+                continue;
+            if (inRotation)
+                transportClient.addTransportAddress(nodeHealth.transportAddress);
+            else
+                transportClient.removeTransportAddress(nodeHealth.transportAddress);
+            nodeHealth.inRotation = inRotation;
+            JMLog.info(log, "updateRotation", nodeHealth, maxLatencyMillis);
+        }
+    }
+
+    /**
+     * Gets node health list.
+     *
+     * @return the node health list
+     */
+    public List<NodeHealth> getNodeHealthList() {
+        return Collections.unmodifiableList(nodeHealthList);
+    }
+
+    /**
+     * The type Node health.
+     */
+    public static class NodeHealth {
+        @Getter
+        private final String hostPort;
+        private volatile TransportAddress transportAddress;
+        @Getter
+        private volatile double latencyMillis = Double.NaN;
+        @Getter
+        private volatile int consecutiveFailures;
+        @Getter
+        private volatile boolean inRotation;
+        private volatile Transport.Connection probeConnection;
+
+        private NodeHealth(String hostPort) {
+            this.hostPort = hostPort;
+        }
+
+        /**
+         * Gets transport address.
+         *
+         * @return the transport address, empty until the host resolves
+         */
+        public Optional<TransportAddress> getTransportAddress() {
+            return Optional.ofNullable(transportAddress);
+        }
+
+        private void resolve() {
+            try {
+                String[] separatedHostPort = hostPort.split(":");
+                this.transportAddress = new TransportAddress(InetAddress.getByName(separatedHostPort[0]),
+                        Integer.parseInt(separatedHostPort[1]));
+            } catch (Exception e) {
+                JMException.handleException(log, e, "resolve", hostPort);
+            }
+        }
+
+        /**
+         * Only the liveness round trip is timed; opening the probe connection, on the first probe or after a failure,
+         * is not.
+         */
+        private void probe(TransportService transportService, long timeoutMillis) {
+            try {
+                Transport.Connection connection = getProbeConnection(transportService, timeoutMillis);
+                PlainActionFuture<LivenessResponse> livenessFuture = PlainActionFuture.newFuture();
+                long startNanos = System.nanoTime();
+                transportService.sendRequest(connection, TransportLivenessAction.NAME, new LivenessRequest(),
+                        TransportRequestOptions.builder().withType(TransportRequestOptions.Type.STATE)
+                                .withTimeout(timeoutMillis).build(),
+                        new ActionListenerResponseHandler<>(livenessFuture, LivenessResponse::new));
+                livenessFuture.actionGet(timeoutMillis);
+                double probeLatencyMillis = (System.nanoTime() - startNanos) / 1_000_000d;
+                this.latencyMillis = Double.isNaN(latencyMillis) ? probeLatencyMillis :
+                        latencyMillis + LATENCY_MOVING_AVERAGE_WEIGHT * (probeLatencyMillis - latencyMillis);
+                this.consecutiveFailures = 0;
+            } catch (Exception e) {
+                closeProbeConnection();
+                this.consecutiveFailures++;
+                JMLog.debug(log, "probe", hostPort, consecutiveFailures, e.getMessage());
+            }
+        }
+
+        private Transport.Connection getProbeConnection(TransportService transportService, long timeoutMillis) {
+            Transport.Connection connection = this.probeConnection;
+            if (Objects.isNull(connection) || connection.isClosed()) {
+                TimeValue timeout = TimeValue.timeValueMillis(timeoutMillis);
+                connection = transportService.openConnection(
+                        new DiscoveryNode(PROBE_NODE_ID_PREFIX + hostPort, transportAddress,
+                                Version.CURRENT.minimumCompatibilityVersion()),
+                        ConnectionProfile.buildSingleChannelProfile(TransportRequestOptions.Type.STATE, timeout,
+                                timeout, null, null));
+                this.probeConnection = connection;
+            }
+            return connection;
+        }
+
+        private void closeProbeConnection() {
+            Transport.Connection connection = this.probeConnection;
+            this.probeConnection = null;
+            if (Objects.nonNull(connection))
+                connection.close();
+        }
+
+        private boolean isHealthy(int maxConsecutiveFailures) {
+            return Objects.nonNull(transportAddress) && consecutiveFailures < maxConsecutiveFailures;
+        }
+
+        @Override
+        public String toString() {
+            return "NodeHealth(hostPort=" + hostPort + ", transportAddress=" + transportAddress + ", latencyMillis=" +
+                    latencyMillis + ", consecutiveFailures=" + consecutiveFailures + ", inRotation=" + inRotation +
+                    ")";
+        }
+    }
+
+}
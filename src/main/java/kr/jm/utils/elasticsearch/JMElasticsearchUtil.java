@@ -3,16 +3,21 @@ package kr.jm.utils.elasticsearch;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import kr.jm.utils.exception.JMException;
 import kr.jm.utils.helper.JMLog;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.ActionFuture;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionRequestBuilder;
 import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.bytes.BytesReference;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The type Jm elasticsearch util.
@@ -24,6 +29,7 @@ public class JMElasticsearchUtil {
             new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
                     .enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
     private static final TypeReference<Map<String, Object>> MAP_TYPE_REFERENCE = new TypeReference<>() {};
+    private static final Map<Class<?>, ObjectReader> ObjectReaderCache = new ConcurrentHashMap<>();
 
     /**
      * Log request query and return t.
@@ -108,4 +114,25 @@ public class JMElasticsearchUtil {
         }
     }
 
+    /**
+     * Build object by source ref t, reading the source bytes of a hit or get response directly, without the map
+     * {@code getSourceAsMap()} builds. The reader per type is shared and has the mapper settings of this class.
+     *
+     * @param <T>       the type parameter
+     * @param sourceRef the source ref
+     * @param type      the type
+     * @return the t, null when there is no source
+     */
+    public static <T> T buildObjectBySourceRef(BytesReference sourceRef, Class<T> type) {
+        if (Objects.isNull(sourceRef))
+            return null;
+        try {
+            BytesRef bytesRef = sourceRef.toBytesRef();
+            return ObjectReaderCache.computeIfAbsent(type, JsonMapper::readerFor)
+                    .readValue(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+        } catch (Exception e) {
+            return JMException.handleExceptionAndThrowRuntimeEx(log, e, "buildObjectBySourceRef", type);
+        }
+    }
+
 }
@@ -0,0 +1,190 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.helper.JMLog;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The type Jm elasticsearch write rate limiter.
+ * <p>
+ * Limits documents per second and source bytes per second of index, update, delete and bulk requests, globally and
+ * per index. All the permits a request needs are reserved at once and it waits once, for the longest of the
+ * reservations. The client delays sending a request over the limit by that wait on its scheduler instead of blocking
+ * the calling thread, which smooths bursts into the configured rate; only a synchronous caller waiting on the response
+ * waits for it. Limits can be changed while writes are running.
+ */
+@Slf4j
+public class JMElasticsearchWriteRateLimiter {
+
+    private final JMElasticsearchRateLimiter globalDocsRateLimiter = new JMElasticsearchRateLimiter(0);
+    private final JMElasticsearchRateLimiter globalBytesRateLimiter = new JMElasticsearchRateLimiter(0);
+    private final Map<String, JMElasticsearchRateLimiter[]> indexRateLimitersMap = new ConcurrentHashMap<>();
+
+    /**
+     * Sets global limit.
+     *
+     * @param docsPerSecond  the docs per second, 0 for unlimited
+     * @param bytesPerSecond the bytes per second, 0 for unlimited
+     */
+    public void setGlobalLimit(double docsPerSecond, double bytesPerSecond) {
+        JMLog.info(log, "setGlobalLimit", docsPerSecond, bytesPerSecond);
+        globalDocsRateLimiter.setPermitsPerSecond(docsPerSecond);
+        globalBytesRateLimiter.setPermitsPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * Sets index limit.
+     *
+     * @param index          the index
+     * @param docsPerSecond  the docs per second, 0 for unlimited
+     * @param bytesPerSecond the bytes per second, 0 for unlimited
+     */
+    public void setIndexLimit(String index, double docsPerSecond, double bytesPerSecond) {
+        JMLog.info(log, "setIndexLimit", index, docsPerSecond, bytesPerSecond);
+        JMElasticsearchRateLimiter[] indexRateLimiters = indexRateLimitersMap.computeIfAbsent(index,
+                key -> new JMElasticsearchRateLimiter[]{new JMElasticsearchRateLimiter(0),
+                        new JMElasticsearchRateLimiter(0)});
+        indexRateLimiters[0].setPermitsPerSecond(docsPerSecond);
+        indexRateLimiters[1].setPermitsPerSecond(bytesPerSecond);
+    }
+
+    /**
+     * Remove index limit.
+     *
+     * @param index the index
+     */
+    public void removeIndexLimit(String index) {
+        indexRateLimitersMap.remove(index);
+    }
+
+    /**
+     * Gets global docs rate limiter.
+     *
+     * @return the global docs rate limiter
+     */
+    public JMElasticsearchRateLimiter getGlobalDocsRateLimiter() {
+        return globalDocsRateLimiter;
+    }
+
+    /**
+     * Gets global bytes rate limiter.
+     *
+     * @return the global bytes rate limiter
+     */
+    public JMElasticsearchRateLimiter getGlobalBytesRateLimiter() {
+        return globalBytesRateLimiter;
+    }
+
+    /**
+     * Gets index docs rate limiter.
+     *
+     * @param index the index
+     * @return the index docs rate limiter
+     */
+    public Optional<JMElasticsearchRateLimiter> getIndexDocsRateLimiter(String index) {
+        return Optional.ofNullable(indexRateLimitersMap.get(index)).map(indexRateLimiters -> indexRateLimiters[0]);
+    }
+
+    /**
+     * Gets index bytes rate limiter.
+     *
+     * @param index the index
+     * @return the index bytes rate limiter
+     */
+    public Optional<JMElasticsearchRateLimiter> getIndexBytesRateLimiter(String index) {
+        return Optional.ofNullable(indexRateLimitersMap.get(index)).map(indexRateLimiters -> indexRateLimiters[1]);
+    }
+
+    /**
+     * Is enabled boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isEnabled() {
+        return !globalDocsRateLimiter.isUnlimited() || !globalBytesRateLimiter.isUnlimited() ||
+                !indexRateLimitersMap.isEmpty();
+    }
+
+    /**
+     * Reserve permits for a write request.
+     *
+     * @param request the index, update, delete or bulk request
+     * @return the nanos to wait before sending the request, the longest of the reservations
+     */
+    public long reserve(Object request) {
+        if (request instanceof BulkRequest)
+            return reserve((BulkRequest) request);
+        if (request instanceof DocWriteRequest)
+            return reserve(((DocWriteRequest<?>) request).index(), 1,
+                    estimateSourceBytes((DocWriteRequest<?>) request));
+        return 0;
+    }
+
+    /**
+     * Acquire permits for a write request, blocking until they are available.
+     *
+     * @param request the index, update, delete or bulk request
+     */
+    public void acquire(Object request) {
+        JMElasticsearchRateLimiter.park(reserve(request));
+    }
+
+    private long reserve(BulkRequest bulkRequest) {
+        long totalBytes = 0;
+        Map<String, long[]> indexDocsAndBytesMap = indexRateLimitersMap.isEmpty() ? null : new HashMap<>();
+        for (DocWriteRequest<?> docWriteRequest : bulkRequest.requests()) {
+            long bytes = estimateSourceBytes(docWriteRequest);
+            totalBytes += bytes;
+            if (Objects.nonNull(indexDocsAndBytesMap) && indexRateLimitersMap.containsKey(docWriteRequest.index())) {
+                long[] docsAndBytes =
+                        indexDocsAndBytesMap.computeIfAbsent(docWriteRequest.index(), index -> new long[2]);
+                docsAndBytes[0]++;
+                docsAndBytes[1] += bytes;
+            }
+        }
+        long waitNanos = Math.max(globalDocsRateLimiter.reserve(bulkRequest.numberOfActions()),
+                globalBytesRateLimiter.reserve(totalBytes));
+        if (Objects.nonNull(indexDocsAndBytesMap))
+            for (Map.Entry<String, long[]> indexDocsAndBytes : indexDocsAndBytesMap.entrySet())
+                waitNanos = Math.max(waitNanos, reserveIndex(indexDocsAndBytes.getKey(),
+                        indexDocsAndBytes.getValue()[0], indexDocsAndBytes.getValue()[1]));
+        return waitNanos;
+    }
+
+    private long reserve(String index, long docs, long bytes) {
+        return Math.max(Math.max(globalDocsRateLimiter.reserve(docs), globalBytesRateLimiter.reserve(bytes)),
+                reserveIndex(index, docs, bytes));
+    }
+
+    private long reserveIndex(String index, long docs, long bytes) {
+        JMElasticsearchRateLimiter[] indexRateLimiters = indexRateLimitersMap.get(index);
+        if (Objects.isNull(indexRateLimiters))
+            return 0;
+        return Math.max(indexRateLimiters[0].reserve(docs), indexRateLimiters[1].reserve(bytes));
+    }
+
+    private long estimateSourceBytes(DocWriteRequest<?> docWriteRequest) {
+        if (docWriteRequest instanceof IndexRequest)
+            return getSourceBytes((IndexRequest) docWriteRequest);
+        if (docWriteRequest instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) docWriteRequest;
+            return getSourceBytes(updateRequest.doc()) + getSourceBytes(updateRequest.upsertRequest());
+        }
+        return 0;
+    }
+
+    private long getSourceBytes(IndexRequest indexRequest) {
+        return Objects.isNull(indexRequest) || Objects.isNull(indexRequest.source()) ? 0 :
+                indexRequest.source().length();
+    }
+
+}
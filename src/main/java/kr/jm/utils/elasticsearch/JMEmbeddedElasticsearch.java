@@ -1,14 +1,21 @@
 package kr.jm.utils.elasticsearch;
 
-import kr.jm.utils.JMThread;
 import kr.jm.utils.enums.OS;
 import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import kr.jm.utils.helper.JMPath;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.client.ClusterAdminClient;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.Settings.Builder;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.discovery.DiscoveryModule;
 import org.elasticsearch.env.Environment;
+import org.elasticsearch.http.HttpInfo;
 import org.elasticsearch.index.reindex.ReindexPlugin;
 import org.elasticsearch.node.InternalSettingsPreparer;
 import org.elasticsearch.node.Node;
@@ -18,16 +25,34 @@ import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.script.mustache.MustachePlugin;
 import org.elasticsearch.transport.Netty4Plugin;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The type Jm embedded elasticsearch.
+ * <p>
+ * {@link #start()} returns once the cluster health is at least yellow instead of after a fixed sleep. For test suites
+ * that boot nodes repeatedly, {@link #buildFastStart()} starts a single-node discovery node with reduced thread pools
+ * and temporary home and data paths (tmpfs when available) that are deleted on {@link #close()}. Fast-start nodes
+ * allow filesystem snapshot repositories under {@code <home>/repo}.
  */
 @Slf4j
 public class JMEmbeddedElasticsearch extends Node {
     private static final Collection<Class<? extends Plugin>> PRE_INSTALLED_PLUGINS =
             List.of(Netty4Plugin.class, ReindexPlugin.class, PercolatorPlugin.class, MustachePlugin.class);
+    private static final Path TMPFS_PATH = Paths.get("/dev/shm");
+    private static final int FAST_START_PROCESSORS = 2;
+    private static final TimeValue READY_TIMEOUT = TimeValue.timeValueSeconds(30);
+
+    private final List<Path> tempPathList = new ArrayList<>();
+    @Getter
+    private long startupMillis;
 
     /**
      * Instantiates a new Jm embedded elasticsearch.
@@ -42,7 +67,18 @@ public class JMEmbeddedElasticsearch extends Node {
      * @param settings the settings
      */
     public JMEmbeddedElasticsearch(Settings settings) {
-        super(new Environment(InternalSettingsPreparer.prepareSettings(settings), null), PRE_INSTALLED_PLUGINS, true);
+        this(settings, PRE_INSTALLED_PLUGINS);
+    }
+
+    /**
+     * Instantiates a new Jm embedded elasticsearch.
+     *
+     * @param settings the settings
+     * @param plugins  the plugins, a subset of {@link #getPreInstalledPlugins()} that must include
+     *                 {@link Netty4Plugin}
+     */
+    public JMEmbeddedElasticsearch(Settings settings, Collection<Class<? extends Plugin>> plugins) {
+        super(new Environment(InternalSettingsPreparer.prepareSettings(settings), null), plugins, true);
     }
 
     /**
@@ -56,6 +92,59 @@ public class JMEmbeddedElasticsearch extends Node {
 
     }
 
+    /**
+     * Build fast start jm embedded elasticsearch.
+     *
+     * @return the jm embedded elasticsearch
+     */
+    public static JMEmbeddedElasticsearch buildFastStart() {
+        return buildFastStart(PRE_INSTALLED_PLUGINS);
+    }
+
+    /**
+     * Build fast start jm embedded elasticsearch.
+     *
+     * @param plugins the plugins, a subset of {@link #getPreInstalledPlugins()} that must include
+     *                {@link Netty4Plugin}
+     * @return the jm embedded elasticsearch
+     */
+    public static JMEmbeddedElasticsearch buildFastStart(Collection<Class<? extends Plugin>> plugins) {
+        Path homePath = createTempDirectory(Paths.get(System.getProperty("java.io.tmpdir")), "jm-es-home");
+        Path dataPath = isTmpfsWritable() ? createTempDirectory(TMPFS_PATH, "jm-es-data") : homePath.resolve("data");
+        JMEmbeddedElasticsearch jmEmbeddedElasticsearch = new JMEmbeddedElasticsearch(
+                getFastStartNodeConfig("JMEmbeddedElasticsearch", OS.getHostname(), "localhost", homePath.toString(),
+                        dataPath.toString()).build(), plugins);
+        jmEmbeddedElasticsearch.tempPathList.add(homePath);
+        jmEmbeddedElasticsearch.tempPathList.add(dataPath);
+        return jmEmbeddedElasticsearch;
+    }
+
+    static boolean isTmpfsWritable() {
+        return Files.isDirectory(TMPFS_PATH) && Files.isWritable(TMPFS_PATH);
+    }
+
+    static Path createTempDirectory(String prefix) {
+        return createTempDirectory(isTmpfsWritable() ? TMPFS_PATH : Paths.get(System.getProperty("java.io.tmpdir")),
+                prefix);
+    }
+
+    private static Path createTempDirectory(Path parentPath, String prefix) {
+        try {
+            return Files.createTempDirectory(parentPath, prefix);
+        } catch (IOException e) {
+            return JMException.handleExceptionAndThrowRuntimeEx(log, e, "createTempDirectory", parentPath, prefix);
+        }
+    }
+
+    /**
+     * Gets pre installed plugins.
+     *
+     * @return the pre installed plugins
+     */
+    public static Collection<Class<? extends Plugin>> getPreInstalledPlugins() {
+        return PRE_INSTALLED_PLUGINS;
+    }
+
     /**
      * Gets node config.
      *
@@ -78,6 +167,26 @@ public class JMEmbeddedElasticsearch extends Node {
                 .put("http.type", "netty4").put("node.ingest", nodeIngest);
     }
 
+    /**
+     * Gets fast start node config.
+     *
+     * @param clusterName the cluster name
+     * @param nodeName    the node name
+     * @param networkHost the network host
+     * @param homePath    the home path
+     * @param dataPath    the data path
+     * @return the fast start node config
+     */
+    public static Builder getFastStartNodeConfig(String clusterName, String nodeName, String networkHost,
+            String homePath, String dataPath) {
+        return getNodeConfig(clusterName, nodeName, networkHost, homePath, true)
+                .put(DiscoveryModule.DISCOVERY_TYPE_SETTING.getKey(), DiscoveryModule.SINGLE_NODE_DISCOVERY_TYPE)
+                .put("path.data", dataPath).put("path.repo", Paths.get(homePath, "repo").toString())
+                .put(EsExecutors.NODE_PROCESSORS_SETTING.getKey(),
+                        Math.min(FAST_START_PROCESSORS, Runtime.getRuntime().availableProcessors()))
+                .put("cluster.routing.allocation.disk.threshold_enabled", false);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -86,14 +195,36 @@ public class JMEmbeddedElasticsearch extends Node {
     @Override
     public Node start() {
         try {
+            long startNanos = System.nanoTime();
             Node node = super.start();
-            JMThread.sleep(1000);
+            waitForReady();
+            this.startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            JMLog.info(log, "start", startupMillis);
             return node;
         } catch (NodeValidationException e) {
             return JMException.handleExceptionAndThrowRuntimeEx(log, e, "start");
         }
     }
 
+    private void waitForReady() {
+        ClusterHealthResponse clusterHealthResponse = client().admin().cluster().prepareHealth()
+                .setWaitForYellowStatus().setMasterNodeTimeout(READY_TIMEOUT).setTimeout(READY_TIMEOUT).get();
+        if (clusterHealthResponse.isTimedOut())
+            JMException.throwRunTimeException(
+                    "cluster health not ready in " + READY_TIMEOUT + " - " + clusterHealthResponse.getStatus());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.elasticsearch.node.Node#close()
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        super.close();
+        tempPathList.forEach(JMPath.getInstance()::deleteDirOnExist);
+    }
+
     /**
      * Gets transport ip port pair.
      *
@@ -103,6 +234,15 @@ public class JMEmbeddedElasticsearch extends Node {
         return getCurrentNode().getNode().getAddress().toString();
     }
 
+    /**
+     * Gets http ip port pair.
+     *
+     * @return the http ip port pair
+     */
+    public String getHttpIpPortPair() {
+        return getCurrentNode().getInfo(HttpInfo.class).getAddress().publishAddress().toString();
+    }
+
     private NodeInfo getCurrentNode() {
         ClusterAdminClient cluster = client().admin().cluster();
         return cluster.prepareNodesInfo(cluster.prepareState().get().getState().getNodes().getLocalNodeId()).get()
@@ -0,0 +1,150 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import kr.jm.utils.helper.JMPath;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The type Jm embedded elasticsearch cluster.
+ * <p>
+ * Starts N {@link JMEmbeddedElasticsearch} nodes in one JVM that form one cluster: each node gets its own transport
+ * and http port and home under a temporary directory, all nodes share the cluster name, seed hosts and a snapshot
+ * repository path, and the first node bootstraps the master election. {@link #start()} returns once every node has
+ * joined and the cluster is green. {@link #getConnectString()} can be passed to {@link JMElasticsearchClient}.
+ */
+@Slf4j
+public class JMEmbeddedElasticsearchCluster implements AutoCloseable {
+
+    private static final String LOCALHOST = "127.0.0.1";
+    private static final TimeValue READY_TIMEOUT = TimeValue.timeValueSeconds(60);
+
+    @Getter
+    private final String clusterName;
+    @Getter
+    private final List<JMEmbeddedElasticsearch> nodeList;
+    @Getter
+    private final List<String> transportAddressList;
+    private final Path rootPath;
+    @Getter
+    private long startupMillis;
+
+    /**
+     * Instantiates a new Jm embedded elasticsearch cluster.
+     *
+     * @param nodeCount the node count
+     */
+    public JMEmbeddedElasticsearchCluster(int nodeCount) {
+        this("JMEmbeddedElasticsearchCluster", nodeCount);
+    }
+
+    /**
+     * Instantiates a new Jm embedded elasticsearch cluster.
+     *
+     * @param clusterName the cluster name
+     * @param nodeCount   the node count
+     */
+    public JMEmbeddedElasticsearchCluster(String clusterName, int nodeCount) {
+        this.clusterName = clusterName;
+        this.rootPath = JMEmbeddedElasticsearch.createTempDirectory("jm-es-cluster");
+        List<Integer> transportPortList = findFreePorts(nodeCount);
+        List<Integer> httpPortList = findFreePorts(nodeCount);
+        this.transportAddressList = Collections.unmodifiableList(
+                transportPortList.stream().map(port -> LOCALHOST + ":" + port).collect(Collectors.toList()));
+        List<String> nodeNameList =
+                IntStream.range(0, nodeCount).mapToObj(i -> "node-" + i).collect(Collectors.toList());
+        this.nodeList = Collections.unmodifiableList(IntStream.range(0, nodeCount).mapToObj(
+                i -> new JMEmbeddedElasticsearch(JMEmbeddedElasticsearch
+                        .getNodeConfig(clusterName, nodeNameList.get(i), LOCALHOST,
+                                rootPath.resolve(nodeNameList.get(i)).toString(), true)
+                        .put("transport.port", transportPortList.get(i)).put("http.port", httpPortList.get(i))
+                        .putList("discovery.seed_hosts", transportAddressList)
+                        .putList("cluster.initial_master_nodes", nodeNameList.get(0))
+                        .put("path.repo", rootPath.resolve("repo").toString())
+                        .put(EsExecutors.NODE_PROCESSORS_SETTING.getKey(), 1)
+                        .put("cluster.routing.allocation.disk.threshold_enabled", false).build()))
+                .collect(Collectors.toList()));
+    }
+
+    private static List<Integer> findFreePorts(int count) {
+        List<ServerSocket> serverSocketList = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++)
+                serverSocketList.add(new ServerSocket(0));
+            return serverSocketList.stream().map(ServerSocket::getLocalPort).collect(Collectors.toList());
+        } catch (IOException e) {
+            return JMException.handleExceptionAndThrowRuntimeEx(log, e, "findFreePorts", count);
+        } finally {
+            for (ServerSocket serverSocket : serverSocketList)
+                closeQuietly(serverSocket);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            JMException.handleException(log, e, "closeQuietly", closeable);
+        }
+    }
+
+    /**
+     * Start jm embedded elasticsearch cluster.
+     *
+     * @return the jm embedded elasticsearch cluster
+     */
+    public JMEmbeddedElasticsearchCluster start() {
+        long startNanos = System.nanoTime();
+        nodeList.forEach(JMEmbeddedElasticsearch::start);
+        ClusterHealthResponse clusterHealthResponse = nodeList.get(0).client().admin().cluster().prepareHealth()
+                .setWaitForNodes(String.valueOf(nodeList.size())).setWaitForGreenStatus()
+                .setMasterNodeTimeout(READY_TIMEOUT).setTimeout(READY_TIMEOUT).get();
+        if (clusterHealthResponse.isTimedOut())
+            JMException.throwRunTimeException("cluster not green with " + nodeList.size() + " nodes in " +
+                    READY_TIMEOUT + " - " + clusterHealthResponse.getStatus() + ", " +
+                    clusterHealthResponse.getNumberOfNodes() + " nodes");
+        this.startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        JMLog.info(log, "start", clusterName, transportAddressList, startupMillis);
+        return this;
+    }
+
+    /**
+     * Gets connect string.
+     *
+     * @return the comma separated transport addresses
+     */
+    public String getConnectString() {
+        return String.join(",", transportAddressList);
+    }
+
+    /**
+     * Build client jm elasticsearch client.
+     *
+     * @return the jm elasticsearch client connected to all nodes
+     */
+    public JMElasticsearchClient buildClient() {
+        return new JMElasticsearchClient(getConnectString(), false, clusterName);
+    }
+
+    @Override
+    public void close() {
+        for (int i = nodeList.size() - 1; i >= 0; i--)
+            closeQuietly(nodeList.get(i));
+        JMPath.getInstance().deleteDirOnExist(rootPath);
+    }
+
+}
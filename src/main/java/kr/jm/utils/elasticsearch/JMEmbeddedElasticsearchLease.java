@@ -0,0 +1,80 @@
+package kr.jm.utils.elasticsearch;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The type Jm embedded elasticsearch lease.
+ * <p>
+ * A node borrowed from a {@link JMEmbeddedElasticsearchPool}. Indices should be named through
+ * {@link #buildIndexName(String)} so leases sharing a node never see each other's data. Closing the lease deletes its
+ * namespaced indices and returns the node; settings changed on the shared client, such as a bulk processor, are not
+ * reset.
+ */
+public class JMEmbeddedElasticsearchLease implements AutoCloseable {
+
+    private final JMEmbeddedElasticsearchPool pool;
+    private final JMEmbeddedElasticsearchPool.PooledNode pooledNode;
+    @Getter
+    private final String namespace;
+
+    /**
+     * Instantiates a new Jm embedded elasticsearch lease.
+     *
+     * @param pool       the pool
+     * @param pooledNode the pooled node
+     * @param namespace  the namespace
+     */
+    JMEmbeddedElasticsearchLease(JMEmbeddedElasticsearchPool pool, JMEmbeddedElasticsearchPool.PooledNode pooledNode,
+            String namespace) {
+        this.pool = pool;
+        this.pooledNode = pooledNode;
+        this.namespace = namespace;
+    }
+
+    /**
+     * Gets node.
+     *
+     * @return the node
+     */
+    public JMEmbeddedElasticsearch getNode() {
+        return pooledNode.getNode();
+    }
+
+    /**
+     * Gets client.
+     *
+     * @return the client
+     */
+    public JMElasticsearchClient getClient() {
+        return pooledNode.getClient();
+    }
+
+    /**
+     * Build index name string.
+     *
+     * @param index the index
+     * @return the namespaced index name
+     */
+    public String buildIndexName(String index) {
+        return namespace + index;
+    }
+
+    /**
+     * Restore fixture list, loading and snapshotting it first if this node has not yet.
+     *
+     * @param fixtureName the fixture name
+     * @return the restored namespaced index list
+     */
+    public List<String> restoreFixture(String fixtureName) {
+        return pool.restoreFixture(pooledNode, fixtureName, namespace);
+    }
+
+    @Override
+    public void close() {
+        getClient().admin().indices().prepareDelete(namespace + "*").get();
+        pool.release(pooledNode);
+    }
+
+}
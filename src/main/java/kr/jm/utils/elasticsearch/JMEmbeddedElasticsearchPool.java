@@ -0,0 +1,179 @@
+package kr.jm.utils.elasticsearch;
+
+import kr.jm.utils.exception.JMException;
+import kr.jm.utils.helper.JMLog;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.snapshots.SnapshotState;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The type Jm embedded elasticsearch pool.
+ * <p>
+ * Keeps started fast-start {@link JMEmbeddedElasticsearch} nodes with a connected {@link JMElasticsearchClient}
+ * each, and hands them out as {@link JMEmbeddedElasticsearchLease}s whose indices live under their own namespace.
+ * Fixtures are loaded once per node, snapshotted into a local filesystem repository and removed; leases restore them
+ * under their namespace, which is much faster than loading them again.
+ */
+@Slf4j
+public class JMEmbeddedElasticsearchPool implements AutoCloseable {
+
+    private static final String FIXTURE_REPOSITORY = "jm-fixtures";
+
+    private final List<PooledNode> pooledNodeList;
+    private final BlockingQueue<PooledNode> idlePooledNodeQueue;
+    private final Map<String, Fixture> fixtureMap = new ConcurrentHashMap<>();
+    private final AtomicLong namespaceCounter = new AtomicLong();
+
+    /**
+     * Instantiates a new Jm embedded elasticsearch pool.
+     *
+     * @param size the number of nodes
+     */
+    public JMEmbeddedElasticsearchPool(int size) {
+        this.pooledNodeList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            pooledNodeList.add(new PooledNode());
+        this.idlePooledNodeQueue = new LinkedBlockingQueue<>(pooledNodeList);
+    }
+
+    /**
+     * Gets shared instance, a single node pool closed on JVM shutdown.
+     *
+     * @return the shared instance
+     */
+    public static JMEmbeddedElasticsearchPool getSharedInstance() {
+        return LazyHolder.INSTANCE;
+    }
+
+    private static class LazyHolder {
+        private static final JMEmbeddedElasticsearchPool INSTANCE = buildSharedInstance();
+
+        private static JMEmbeddedElasticsearchPool buildSharedInstance() {
+            JMEmbeddedElasticsearchPool jmEmbeddedElasticsearchPool = new JMEmbeddedElasticsearchPool(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(jmEmbeddedElasticsearchPool::close));
+            return jmEmbeddedElasticsearchPool;
+        }
+    }
+
+    /**
+     * Register fixture.
+     *
+     * @param fixtureName the fixture name, lowercase
+     * @param loader      the loader, writing the fixture into the given indices
+     * @param indices     the indices the loader writes
+     */
+    public void registerFixture(String fixtureName, Consumer<JMElasticsearchClient> loader, String... indices) {
+        fixtureMap.put(fixtureName, new Fixture(fixtureName, loader, indices));
+    }
+
+    /**
+     * Lease jm embedded elasticsearch lease, waiting for an idle node.
+     *
+     * @return the jm embedded elasticsearch lease
+     */
+    public JMEmbeddedElasticsearchLease lease() {
+        try {
+            return new JMEmbeddedElasticsearchLease(this, idlePooledNodeQueue.take(),
+                    "ns" + namespaceCounter.incrementAndGet() + "-");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return JMException.handleExceptionAndThrowRuntimeEx(log, e, "lease");
+        }
+    }
+
+    void release(PooledNode pooledNode) {
+        idlePooledNodeQueue.add(pooledNode);
+    }
+
+    List<String> restoreFixture(PooledNode pooledNode, String fixtureName, String namespace) {
+        Fixture fixture = Optional.ofNullable(fixtureMap.get(fixtureName)).orElseThrow(
+                () -> JMException.handleExceptionAndReturnRuntimeEx(log,
+                        new NoSuchElementException("unregistered fixture " + fixtureName), "restoreFixture",
+                        fixtureName));
+        pooledNode.snapshotOnce(fixture);
+        long startNanos = System.nanoTime();
+        List<String> indexList = pooledNode.client.admin().cluster()
+                .prepareRestoreSnapshot(FIXTURE_REPOSITORY, fixture.name).setIndices(fixture.indices)
+                .setRenamePattern("(.+)").setRenameReplacement(namespace + "$1").setRestoreGlobalState(false)
+                .setWaitForCompletion(true).get().getRestoreInfo().indices();
+        JMLog.info(log, "restoreFixture", fixtureName, namespace, indexList,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return indexList;
+    }
+
+    @Override
+    public void close() {
+        for (PooledNode pooledNode : pooledNodeList)
+            pooledNode.close();
+    }
+
+    private static class Fixture {
+        private final String name;
+        private final Consumer<JMElasticsearchClient> loader;
+        private final String[] indices;
+
+        private Fixture(String name, Consumer<JMElasticsearchClient> loader, String[] indices) {
+            this.name = name;
+            this.loader = loader;
+            this.indices = indices;
+        }
+    }
+
+    /**
+     * The type Pooled node.
+     */
+    static class PooledNode {
+        @Getter
+        private final JMEmbeddedElasticsearch node;
+        @Getter
+        private final JMElasticsearchClient client;
+        private final Set<String> snapshotSet = ConcurrentHashMap.newKeySet();
+
+        private PooledNode() {
+            this.node = JMEmbeddedElasticsearch.buildFastStart();
+            node.start();
+            this.client = new JMElasticsearchClient(node.getTransportIpPortPair());
+            client.admin().cluster().preparePutRepository(FIXTURE_REPOSITORY).setType("fs")
+                    .setSettings(Settings.builder().put("location", FIXTURE_REPOSITORY)).get();
+        }
+
+        private synchronized void snapshotOnce(Fixture fixture) {
+            if (snapshotSet.contains(fixture.name))
+                return;
+            long startNanos = System.nanoTime();
+            fixture.loader.accept(client);
+            client.admin().indices().prepareRefresh(fixture.indices).get();
+            CreateSnapshotResponse createSnapshotResponse = client.admin().cluster()
+                    .prepareCreateSnapshot(FIXTURE_REPOSITORY, fixture.name).setIndices(fixture.indices)
+                    .setIncludeGlobalState(false).setWaitForCompletion(true).get();
+            if (createSnapshotResponse.getSnapshotInfo().state() != SnapshotState.SUCCESS)
+                JMException.throwRunTimeException("fixture snapshot failed - " + fixture.name + " " +
+                        createSnapshotResponse.getSnapshotInfo().reason());
+            client.admin().indices().prepareDelete(fixture.indices).get();
+            snapshotSet.add(fixture.name);
+            JMLog.info(log, "snapshotOnce", fixture.name, Arrays.asList(fixture.indices),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+
+        private void close() {
+            client.close();
+            try {
+                node.close();
+            } catch (IOException e) {
+                JMException.handleException(log, e, "close");
+            }
+        }
+    }
+
+}